@@ -1,7 +1,8 @@
 public class BinaryOp implements Function {
-    private Operator operator;
-    private Function leftOperand;
-    private Function rightOperand;
+    private final Operator operator;
+    private final Function leftOperand;
+    private final Function rightOperand;
+    private int hash;
     public BinaryOp(Operator operator, Function leftOperand, Function rightOperand) {
         this.operator = operator;
         this.leftOperand = leftOperand;
@@ -15,18 +16,79 @@ public class BinaryOp implements Function {
     * @return the result of the expression's evaluation as a double value according to the expression's operator and
     */
     public double value(double x) {
-        double leftValue = leftOperand.value(x);
-        double rightValue = rightOperand.value(x);
+        return apply(operator, leftOperand.value(x), rightOperand.value(x));
+    }
+    /**
+    * Applies the operator to two values. Every evaluator of BinaryOp nodes goes through this method, so they all agree on the operators.
+    * 
+    * @param operator - the operator to apply
+    * @param left - the value of the left operand
+    * @param right - the value of the right operand
+    * 
+    * @return the value of the operator
+    */
+    static double apply(Operator operator, double left, double right) {
         // Returns the value of the operator.
         switch (operator) {
             case ADD:
-                return leftValue + rightValue;
+                return left + right;
             case SUBTRACT:
-                return leftValue - rightValue;
+                return left - right;
             case MULTIPLY:
-                return leftValue * rightValue;
+                return left * right;
             case DIVIDE:
-                return leftValue / rightValue;
+                return left / right;
+            default:
+                throw new UnsupportedOperationException("Unsupported operator: " + operator);
+        }
+    }
+    /**
+    * Evaluates the expression over a block of arguments. The left operand is evaluated into out and the right operand into a scratch block lent by BlockScratch, then the operator runs as one loop over both blocks.
+    * 
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        BlockScratch scratch = BlockScratch.get();
+        double[] right = scratch.acquire(length);
+        try {
+            leftOperand.value(xs, from, out, outFrom, length);
+            rightOperand.value(xs, from, right, 0, length);
+            combine(out, outFrom, right, length);
+        } finally {
+            scratch.release();
+        }
+    }
+
+    /**
+     * Applies the operator to the values in out and the values of the right operand, element by element.
+     */
+    private void combine(double[] out, int outFrom, double[] right, int length) {
+        // Applies the operator to the whole block.
+        switch (operator) {
+            case ADD:
+                for (int i = 0; i < length; i++) {
+                    out[outFrom + i] += right[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < length; i++) {
+                    out[outFrom + i] -= right[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < length; i++) {
+                    out[outFrom + i] *= right[i];
+                }
+                break;
+            case DIVIDE:
+                for (int i = 0; i < length; i++) {
+                    out[outFrom + i] /= right[i];
+                }
+                break;
             default:
                 throw new UnsupportedOperationException("Unsupported operator: " + operator);
         }
@@ -94,25 +156,7 @@ public class BinaryOp implements Function {
     * @return a string representation of this BinaryOp including operator and operands separated by " ( " and " ) "
     */
     public String toString() {
-        String leftString = leftOperand.toString();
-        String rightString = rightOperand.toString();
-        // Returns the string representation of the left operand.
-        if (leftOperand instanceof BinaryOp) {
-            BinaryOp leftBinaryOp = (BinaryOp) leftOperand;
-            // Returns the string representation of the left binary operator.
-            if (leftBinaryOp.operator != operator) {
-                leftString = "(" + leftString + ")";
-            }
-        }
-        // Returns the string representation of the right operand.
-        if (rightOperand instanceof BinaryOp) {
-            BinaryOp rightBinaryOp = (BinaryOp) rightOperand;
-            // Add the right binary operator to the right string.
-            if (rightBinaryOp.operator != operator && rightBinaryOp.operator != Operator.ADD) {
-                rightString = "(" + rightString + ")";
-            }
-        }
-        return leftString + " " + operatorToString() + " " + rightString;
+        return IterativeEngine.toString(this);
     }
     /**
     * Converts the operator to a string. This method is used for debugging purposes only. Do not use in production code.
@@ -120,7 +164,7 @@ public class BinaryOp implements Function {
     * 
     * @return String representation of the operator ( + - * / etc. ) as defined in RFC 4627.
     */
-    private String operatorToString() {
+    String operatorToString() {
         // Returns the operator of the operator.
         switch (operator) {
             case ADD:
@@ -144,12 +188,31 @@ public class BinaryOp implements Function {
     */
     public boolean equals(Object obj) {
         // Returns true if the object is a binary operator.
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof BinaryOp) {
             BinaryOp other = (BinaryOp) obj;
             return operator == other.operator &&
+                    hashCode() == other.hashCode() &&
                     leftOperand.equals(other.leftOperand) &&
                     rightOperand.equals(other.rightOperand);
         }
         return false;
     }
+    /**
+    * Returns a hash code computed from the structure of this BinaryOp. Structurally equal trees have equal hash codes. The hash is computed once and cached.
+    * 
+    * 
+    * @return the structural hash code of this BinaryOp
+    */
+    public int hashCode() {
+        int result = hash;
+        // Computes the hash on first use.
+        if (result == 0) {
+            result = 31 * (31 * operator.ordinal() + leftOperand.hashCode()) + rightOperand.hashCode();
+            hash = result;
+        }
+        return result;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+import java.util.Arrays;
+
+/**
+ * The BlockScratch class lends scratch blocks to block evaluation and registers to Tape. Every
+ * thread keeps one stack of blocks, one per level of nested nodes or tapes that are being
+ * evaluated, so they reuse the same arrays from call to call instead of allocating them, and a
+ * tape called from another tape gets its own registers. Blocks above RETAINED_DEPTH are dropped
+ * on release, so a very deep tree does not pin its blocks in memory.
+ */
+final class BlockScratch {
+    private static final int RETAINED_DEPTH = 64;
+    private static final ThreadLocal<BlockScratch> SCRATCH = ThreadLocal.withInitial(BlockScratch::new);
+
+    private double[][] blocks = new double[16][];
+    private int depth;
+
+    private BlockScratch() {
+    }
+
+    /**
+     * Returns the scratch stack of the current thread.
+     */
+    static BlockScratch get() {
+        return SCRATCH.get();
+    }
+
+    /**
+     * Returns a block of at least the given length that stays lent until the matching release.
+     */
+    double[] acquire(int length) {
+        if (depth == blocks.length) {
+            blocks = Arrays.copyOf(blocks, depth * 2);
+        }
+        double[] block = blocks[depth];
+        if (block == null || block.length < length) {
+            block = new double[Math.max(length, Function.CHUNK_SIZE)];
+            blocks[depth] = block;
+        }
+        depth++;
+        return block;
+    }
+
+    /**
+     * Returns the block lent last.
+     */
+    void release() {
+        depth--;
+        if (depth >= RETAINED_DEPTH) {
+            blocks[depth] = null;
+        }
+    }
+}
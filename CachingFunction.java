@@ -0,0 +1,129 @@
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The CachingFunction class memoizes the values of a Function in an EvaluationCache. Besides the
+ * function itself, every Log and Polynomial subtree is memoized separately, since Math.log and
+ * Math.pow are the expensive parts of an evaluation. Several functions, and several threads, can
+ * share one cache.
+ */
+public class CachingFunction implements Function {
+    private final Function source;
+    private final Function function;
+    private final EvaluationCache cache;
+    private final int node;
+    public CachingFunction(Function source, EvaluationCache cache) {
+        this(source, cache, new IdentityHashMap<>());
+    }
+    private CachingFunction(Function source, EvaluationCache cache, Map<Function, Function> wrapped) {
+        this.source = source;
+        this.cache = cache;
+        this.node = cache.newNode();
+        this.function = cacheOperands(source, cache, wrapped);
+    }
+    /**
+    * Returns the value of the function at the given argument, from the cache if it was computed before.
+    *
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public double value(double x) {
+        return cache.value(node, x, function);
+    }
+    /**
+    * Returns the derivative of the function, memoized in the same cache.
+    *
+    *
+    * @return a CachingFunction for the derivative of the source tree
+    */
+    public Function derivative() {
+        return new CachingFunction(source.derivative(), cache);
+    }
+    /**
+    * Returns the tree this function memoizes.
+    *
+    *
+    * @return the source tree of this function
+    */
+    public Function getSource() {
+        return source;
+    }
+    /**
+    * Returns the cache holding the values of this function.
+    *
+    *
+    * @return the cache of this function
+    */
+    public EvaluationCache getCache() {
+        return cache;
+    }
+    /**
+    * Returns the string representation of the source tree.
+    *
+    *
+    * @return the string representation of the source tree
+    */
+    public String toString() {
+        return source.toString();
+    }
+    /**
+    * Compares this function with another. Two caching functions are equal if they memoize equal trees in the same cache.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is a CachingFunction with an equal source tree and the same cache
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is a caching function.
+        if (obj instanceof CachingFunction) {
+            CachingFunction other = (CachingFunction) obj;
+            return cache == other.cache && source.equals(other.source);
+        }
+        return false;
+    }
+    /**
+    * Returns the hash code of the source tree.
+    *
+    *
+    * @return the structural hash code of the source tree
+    */
+    public int hashCode() {
+        return source.hashCode();
+    }
+
+    /**
+     * Copies the node, wrapping its Log and Polynomial descendants in their own caching functions.
+     * Shared descendants get one wrapper, so they also share cache entries.
+     */
+    private static Function cacheOperands(Function function, EvaluationCache cache, Map<Function, Function> wrapped) {
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            return new BinaryOp(binaryOp.getOperator(),
+                    cacheSubtree(binaryOp.getLeftOperand(), cache, wrapped),
+                    cacheSubtree(binaryOp.getRightOperand(), cache, wrapped));
+        }
+        if (function instanceof Log) {
+            return new Log(cacheSubtree(((Log) function).getOperand(), cache, wrapped));
+        }
+        if (function instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) function;
+            return new Polynomial(cacheSubtree(polynomial.getOperand(), cache, wrapped), polynomial.getPower());
+        }
+        return function;
+    }
+
+    private static Function cacheSubtree(Function function, EvaluationCache cache, Map<Function, Function> wrapped) {
+        Function result = wrapped.get(function);
+        // Reuses the wrapper of a subtree reached through another parent.
+        if (result == null) {
+            if (function instanceof Log || function instanceof Polynomial) {
+                result = new CachingFunction(function, cache, wrapped);
+            } else {
+                result = cacheOperands(function, cache, wrapped);
+            }
+            wrapped.put(function, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,336 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The ChebyshevSurrogate class approximates a Function on an interval by piecewise Chebyshev
+ * series, and evaluates them with the Clenshaw recurrence instead of walking the tree. The pieces
+ * are chosen adaptively: a piece whose series does not reach the tolerance is halved, so pieces
+ * get short near singularities. A piece that cannot be fitted, because the function is not finite
+ * there or the series misses the tolerance at the largest depth, is evaluated with the source
+ * function, and so are the arguments outside the interval. Every piece keeps the scale and offset
+ * that map its arguments to [-1, 1], so an evaluation does not divide, and the pieces are found
+ * through a table of equal cells instead of a search. The pieces are fitted in parallel on the
+ * common fork-join pool.
+ */
+public class ChebyshevSurrogate implements Function {
+    private static final int DEGREE = 12;
+    private static final int MAX_DEPTH = 48;
+    private static final double NOISE_ULPS = 64;
+    private static final int CELLS_PER_PIECE = 8;
+    private static final int MAX_CELLS = 1 << 12;
+
+    private final Function source;
+    private final double[] breaks;
+    private final double[][] coefficients;
+    private final double[] scales;
+    private final double[] offsets;
+    private final int[] cells;
+    private final double cellScale;
+    private final double maxError;
+    private ChebyshevSurrogate(Function source, double[] breaks, double[][] coefficients, double maxError) {
+        this.source = source;
+        this.breaks = breaks;
+        this.coefficients = coefficients;
+        this.scales = new double[coefficients.length];
+        this.offsets = new double[coefficients.length];
+        for (int i = 0; i < coefficients.length; i++) {
+            scales[i] = 2 / (breaks[i + 1] - breaks[i]);
+            offsets[i] = (breaks[i] + breaks[i + 1]) / (breaks[i + 1] - breaks[i]);
+        }
+        double length = breaks[breaks.length - 1] - breaks[0];
+        this.cells = new int[Math.min(Integer.highestOneBit(coefficients.length) * CELLS_PER_PIECE, MAX_CELLS)];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = search(breaks, breaks[0] + (i + 0.5) * length / cells.length);
+        }
+        this.cellScale = cells.length / length;
+        this.maxError = maxError;
+    }
+    /**
+    * Fits a surrogate of the function on [a, b]. A piece is accepted once its error estimate is at most tolerance times the larger of 1 and the largest absolute value of the function on the piece.
+    *
+    * @param function - the function to approximate
+    * @param a - the lower end of the interval
+    * @param b - the upper end of the interval
+    * @param tolerance - the requested error, absolute for values up to 1 and relative above
+    *
+    * @return the surrogate of the function
+    */
+    public static ChebyshevSurrogate build(Function function, double a, double b, double tolerance) {
+        // Checks that the interval and the tolerance are usable.
+        if (!Double.isFinite(a) || !Double.isFinite(b) || !(a < b)) {
+            throw new IllegalArgumentException("Invalid interval: [" + a + ", " + b + "]");
+        }
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        List<Piece> pieces = ForkJoinPool.commonPool().invoke(new FitTask(function, a, b, tolerance, 0));
+        double[] breaks = new double[pieces.size() + 1];
+        double[][] coefficients = new double[pieces.size()][];
+        double maxError = 0;
+        breaks[0] = a;
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+            breaks[i + 1] = piece.upper;
+            coefficients[i] = piece.coefficients;
+            maxError = Math.max(maxError, piece.error);
+        }
+        return new ChebyshevSurrogate(function, breaks, coefficients, maxError);
+    }
+    /**
+    * Evaluates the surrogate at the given argument with the Clenshaw recurrence of its piece. The piece is looked up in a table of equal cells over the interval, so the breaks are only searched in the cells that hold one.
+    *
+    * @param x - the argument to the function
+    *
+    * @return the approximate value of the function at x, or its exact value outside the interval and on pieces that could not be fitted
+    */
+    public double value(double x) {
+        // Evaluates the source outside the interval.
+        if (!(x >= breaks[0] && x <= breaks[breaks.length - 1])) {
+            return source.value(x);
+        }
+        int piece = cells[Math.min((int) ((x - breaks[0]) * cellScale), cells.length - 1)];
+        // Searches the breaks only if the piece of the cell does not hold x, where the cell holds
+        // a break.
+        if (x < breaks[piece] || x >= breaks[piece + 1]) {
+            piece = search(breaks, x);
+        }
+        double[] c = coefficients[piece];
+        if (c == null) {
+            return source.value(x);
+        }
+        return clenshaw(c, x * scales[piece] - offsets[piece]);
+    }
+    /**
+    * Returns the derivative of the surrogate, computed from the Chebyshev coefficients of every piece. Pieces that could not be fitted, and arguments outside the interval, use the derivative of the source.
+    *
+    *
+    * @return a surrogate of the derivative
+    */
+    public Function derivative() {
+        double[][] result = new double[coefficients.length][];
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] != null) {
+                result[i] = differentiate(coefficients[i], breaks[i + 1] - breaks[i]);
+            }
+        }
+        Function derivative = source.derivative();
+        double error = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] != null) {
+                error = Math.max(error, measure(derivative, result[i], breaks[i], breaks[i + 1]));
+            }
+        }
+        return new ChebyshevSurrogate(derivative, breaks, result, error);
+    }
+    /**
+    * Returns the largest error estimate over the fitted pieces. The estimate of a piece is the larger of the discarded coefficients and the error measured between the fitting points, divided by the larger of 1 and the largest absolute value of the function on the piece, as the tolerance is. It is at most the tolerance, unless that is below the rounding error of the values.
+    *
+    *
+    * @return the estimate of the largest error of the surrogate on its interval, absolute for values up to 1 and relative above
+    */
+    public double getMaxError() {
+        return maxError;
+    }
+    /**
+    * Returns the number of pieces of the surrogate.
+    *
+    *
+    * @return the number of subintervals
+    */
+    public int getPieceCount() {
+        return coefficients.length;
+    }
+    /**
+    * Returns the function this surrogate approximates.
+    *
+    *
+    * @return the source function
+    */
+    public Function getSource() {
+        return source;
+    }
+    /**
+    * Returns the string representation of the source function.
+    *
+    *
+    * @return the string representation of the source function
+    */
+    public String toString() {
+        return source.toString();
+    }
+
+    /**
+     * Evaluates the series sum c[k] T_k (t) with the Clenshaw recurrence. The coefficient and the
+     * term before last are added first, off the chain of dependent steps.
+     */
+    private static double clenshaw(double[] c, double t) {
+        double next = 0;
+        double current = 0;
+        double twoT = 2 * t;
+        for (int k = c.length - 1; k >= 1; k--) {
+            double previous = twoT * current + (c[k] - next);
+            next = current;
+            current = previous;
+        }
+        return t * current - next + c[0];
+    }
+
+    /**
+     * Returns the coefficients of the derivative of the series on a piece of the given length.
+     */
+    private static double[] differentiate(double[] c, double length) {
+        int n = c.length - 1;
+        if (n == 0) {
+            return new double[1];
+        }
+        double[] d = new double[n + 2];
+        for (int k = n; k >= 1; k--) {
+            d[k - 1] = d[k + 1] + 2 * k * c[k];
+        }
+        d[0] /= 2;
+        double scale = 2 / length;
+        for (int k = 0; k < n; k++) {
+            d[k] *= scale;
+        }
+        return Arrays.copyOf(d, n);
+    }
+
+    /**
+     * Returns the largest difference between the function and the series at points between the
+     * fitting points of the piece, divided by the larger of 1 and the largest absolute value of
+     * the function there.
+     */
+    private static double measure(Function function, double[] c, double lower, double upper) {
+        double[] xs = new double[DEGREE];
+        double[] values = new double[DEGREE];
+        for (int j = 0; j < DEGREE; j++) {
+            xs[j] = map(Math.cos(Math.PI * (j + 1) / (DEGREE + 1)), lower, upper);
+        }
+        function.value(xs, 0, values, 0, DEGREE);
+        double error = 0;
+        double scale = 1;
+        for (int j = 0; j < DEGREE; j++) {
+            error = Math.max(error, Math.abs(values[j] - clenshaw(c, (2 * xs[j] - lower - upper) / (upper - lower))));
+            scale = Math.max(scale, Math.abs(values[j]));
+        }
+        return error / scale;
+    }
+
+    /**
+     * Returns the index of the piece holding x, the right one of two pieces that x is a break of.
+     */
+    private static int search(double[] breaks, double x) {
+        int piece = Arrays.binarySearch(breaks, x);
+        return piece >= 0 ? Math.min(piece, breaks.length - 2) : -piece - 2;
+    }
+
+    private static double map(double t, double lower, double upper) {
+        return 0.5 * (lower + upper) + 0.5 * (upper - lower) * t;
+    }
+
+    /**
+     * A fitted piece, with null coefficients if the source must be evaluated instead.
+     */
+    private static final class Piece {
+        final double upper;
+        final double[] coefficients;
+        final double error;
+        final boolean accepted;
+
+        Piece(double upper, double[] coefficients, double error, boolean accepted) {
+            this.upper = upper;
+            this.coefficients = coefficients;
+            this.error = error;
+            this.accepted = accepted;
+        }
+    }
+
+    /**
+     * Fits a piece, or splits it in halves and fits them in parallel.
+     */
+    @SuppressWarnings("serial")
+    private static final class FitTask extends RecursiveTask<List<Piece>> {
+        private final Function function;
+        private final double lower;
+        private final double upper;
+        private final double tolerance;
+        private final int depth;
+
+        FitTask(Function function, double lower, double upper, double tolerance, int depth) {
+            this.function = function;
+            this.lower = lower;
+            this.upper = upper;
+            this.tolerance = tolerance;
+            this.depth = depth;
+        }
+
+        @Override
+        protected List<Piece> compute() {
+            Piece piece = fit();
+            double middle = 0.5 * (lower + upper);
+            // Keeps the piece if it is accurate enough, and leaves it to the source if it cannot be
+            // split any further.
+            if (piece.accepted || depth >= MAX_DEPTH || middle <= lower || middle >= upper) {
+                List<Piece> result = new ArrayList<>();
+                result.add(piece.accepted ? piece : new Piece(upper, null, 0, false));
+                return result;
+            }
+            FitTask left = new FitTask(function, lower, middle, tolerance, depth + 1);
+            FitTask right = new FitTask(function, middle, upper, tolerance, depth + 1);
+            right.fork();
+            List<Piece> result = left.compute();
+            result.addAll(right.join());
+            return result;
+        }
+
+        /**
+         * Fits the series of DEGREE on the piece. A piece where the function is not finite at
+         * any fitting point is left to the source at once; a piece where it is not finite at
+         * some of them is left to the source only if it cannot be split.
+         */
+        private Piece fit() {
+            int points = DEGREE + 1;
+            double[] xs = new double[points];
+            double[] values = new double[points];
+            for (int j = 0; j < points; j++) {
+                xs[j] = map(Math.cos(Math.PI * (j + 0.5) / points), lower, upper);
+            }
+            function.value(xs, 0, values, 0, points);
+            double scale = 1;
+            int finite = 0;
+            for (double value : values) {
+                if (Double.isFinite(value)) {
+                    finite++;
+                    scale = Math.max(scale, Math.abs(value));
+                }
+            }
+            if (finite < points) {
+                return new Piece(upper, null, 0, finite == 0);
+            }
+            double[] c = new double[points];
+            for (int k = 0; k < points; k++) {
+                double sum = 0;
+                for (int j = 0; j < points; j++) {
+                    sum += values[j] * Math.cos(Math.PI * k * (j + 0.5) / points);
+                }
+                c[k] = 2 * sum / points;
+            }
+            c[0] /= 2;
+            // Does not ask for less than the rounding error of the values themselves.
+            double limit = Math.max(tolerance * scale, NOISE_ULPS * Math.ulp(scale));
+            double tail = Math.abs(c[DEGREE - 1]) + Math.abs(c[DEGREE]);
+            int length = points;
+            double dropped = 0;
+            // Drops the trailing coefficients that are below a quarter of the tolerance together.
+            while (length > 1 && dropped + Math.abs(c[length - 1]) <= limit / 4) {
+                dropped += Math.abs(c[--length]);
+            }
+            double[] trimmed = Arrays.copyOf(c, length);
+            double error = Math.max(tail / scale, measure(function, trimmed, lower, upper)) + dropped / scale;
+            return new Piece(upper, trimmed, error, error <= limit / scale);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * The CompiledFunction class is the base of the classes generated by FunctionCompiler. A subclass
+ * evaluates the source tree in one straight-line method body instead of walking its nodes.
+ */
+public abstract class CompiledFunction implements Function {
+    private final Function source;
+    // Subtrees the compiler could not inline; the generated code calls their value method directly.
+    final Function[] leaves;
+    private volatile Function derivative;
+    protected CompiledFunction(Function source, Function[] leaves) {
+        this.source = source;
+        this.leaves = leaves;
+    }
+    /**
+    * Evaluates the compiled expression at the given argument. The result is the same as the value of the source tree.
+    *
+    * @param x - the argument to the expression
+    *
+    * @return the value of the source tree at x
+    */
+    public abstract double value(double x);
+    /**
+    * Returns the compiled derivative of this function. The symbolic derivative of the source tree is compiled on the first call and reused afterwards.
+    *
+    *
+    * @return the derivative of the source tree as a CompiledFunction
+    */
+    public Function derivative() {
+        Function result = derivative;
+        // Compiles the derivative only once.
+        if (result == null) {
+            result = FunctionCompiler.compile(source.derivative());
+            derivative = result;
+        }
+        return result;
+    }
+    /**
+    * Returns the tree this function was compiled from.
+    *
+    *
+    * @return the source tree of this compiled function
+    */
+    public Function getSource() {
+        return source;
+    }
+    /**
+    * Returns the string representation of the source tree.
+    *
+    *
+    * @return the string representation of the source tree
+    */
+    public String toString() {
+        return source.toString();
+    }
+    /**
+    * Compares this compiled function with another. Two compiled functions are equal if their source trees are equal.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is a CompiledFunction with an equal source tree
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is a compiled function.
+        if (obj instanceof CompiledFunction) {
+            CompiledFunction other = (CompiledFunction) obj;
+            return source.equals(other.source);
+        }
+        return false;
+    }
+    /**
+    * Returns the hash code of the source tree.
+    *
+    *
+    * @return the structural hash code of the source tree
+    */
+    public int hashCode() {
+        return source.hashCode();
+    }
+}
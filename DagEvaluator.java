@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The DagEvaluator class evaluates a Function tree as a DAG. Structurally equal subexpressions are
+ * merged into one slot, and the slots are evaluated in dependency order, so every shared node is
+ * computed only once per argument.
+ */
+public class DagEvaluator implements Function {
+    private static final int VARIABLE = 0;
+    private static final int NUMBER = 1;
+    private static final int BINARY_OP = 2;
+    private static final int LOG = 3;
+    private static final int POLYNOMIAL = 4;
+    private static final int OTHER = 5;
+
+    private final Function function;
+    private final Function[] nodes;
+    private final int[] kinds;
+    private final int[] leftSlots;
+    private final int[] rightSlots;
+    public DagEvaluator(Function function) {
+        this.function = function;
+        List<Function> order = new ArrayList<>();
+        Map<Function, Integer> slots = new HashMap<>();
+        Map<Function, Integer> visited = new IdentityHashMap<>();
+        List<int[]> operands = new ArrayList<>();
+        slot(function, order, slots, visited, operands);
+        int size = order.size();
+        this.nodes = order.toArray(new Function[0]);
+        this.kinds = new int[size];
+        this.leftSlots = new int[size];
+        this.rightSlots = new int[size];
+        for (int i = 0; i < size; i++) {
+            kinds[i] = kind(nodes[i]);
+            leftSlots[i] = operands.get(i)[0];
+            rightSlots[i] = operands.get(i)[1];
+        }
+    }
+    /**
+    * Evaluates the DAG at the given argument. Each distinct subexpression is evaluated once.
+    *
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public double value(double x) {
+        double[] values = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            // Evaluates the node from the values of its operand slots.
+            switch (kinds[i]) {
+                case VARIABLE:
+                    values[i] = x;
+                    break;
+                case NUMBER:
+                    values[i] = ((Number) nodes[i]).getValue();
+                    break;
+                case BINARY_OP:
+                    values[i] = BinaryOp.apply(((BinaryOp) nodes[i]).getOperator(), values[leftSlots[i]], values[rightSlots[i]]);
+                    break;
+                case LOG:
+                    values[i] = Math.log(values[leftSlots[i]]);
+                    break;
+                case POLYNOMIAL:
+                    values[i] = Polynomial.pow(values[leftSlots[i]], ((Polynomial) nodes[i]).getPower());
+                    break;
+                default:
+                    values[i] = nodes[i].value(x);
+                    break;
+            }
+        }
+        return values[nodes.length - 1];
+    }
+    /**
+    * Returns the derivative of this function, evaluated as a DAG as well.
+    *
+    *
+    * @return a DagEvaluator for the derivative of the source tree
+    */
+    public Function derivative() {
+        return new DagEvaluator(new ExpressionFactory().derivative(function));
+    }
+    /**
+    * Returns the number of distinct subexpressions evaluated per argument.
+    *
+    *
+    * @return the number of slots of this evaluator
+    */
+    public int size() {
+        return nodes.length;
+    }
+    /**
+    * Returns the tree this evaluator was built from.
+    *
+    *
+    * @return the source tree of this evaluator
+    */
+    public Function getFunction() {
+        return function;
+    }
+    /**
+    * Returns the string representation of the source tree.
+    *
+    *
+    * @return the string representation of the source tree
+    */
+    public String toString() {
+        return function.toString();
+    }
+
+    /**
+     * Assigns slots to the operands of the node and then to the node itself, and returns its slot.
+     */
+    private static int slot(Function function, List<Function> order, Map<Function, Integer> slots,
+            Map<Function, Integer> visited, List<int[]> operands) {
+        Integer known = visited.get(function);
+        // Returns the slot of a node that was already visited through another parent.
+        if (known != null) {
+            return known;
+        }
+        known = slots.get(function);
+        if (known != null) {
+            visited.put(function, known);
+            return known;
+        }
+        int left = -1;
+        int right = -1;
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            left = slot(binaryOp.getLeftOperand(), order, slots, visited, operands);
+            right = slot(binaryOp.getRightOperand(), order, slots, visited, operands);
+        } else if (function instanceof Log) {
+            left = slot(((Log) function).getOperand(), order, slots, visited, operands);
+        } else if (function instanceof Polynomial) {
+            left = slot(((Polynomial) function).getOperand(), order, slots, visited, operands);
+        }
+        int index = order.size();
+        order.add(function);
+        operands.add(new int[] { left, right });
+        slots.put(function, index);
+        visited.put(function, index);
+        return index;
+    }
+
+    private static int kind(Function function) {
+        // Returns the kind of the node type.
+        if (function instanceof Variable) {
+            return VARIABLE;
+        }
+        if (function instanceof Number) {
+            return NUMBER;
+        }
+        if (function instanceof BinaryOp) {
+            return BINARY_OP;
+        }
+        if (function instanceof Log) {
+            return LOG;
+        }
+        if (function instanceof Polynomial) {
+            return POLYNOMIAL;
+        }
+        return OTHER;
+    }
+}
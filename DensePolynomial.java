@@ -0,0 +1,318 @@
+import java.util.Arrays;
+
+/**
+ * The DensePolynomial class represents a polynomial by its array of coefficients, where element i
+ * is the coefficient of x ^ i. It evaluates with Horner's method and differentiates, adds and
+ * multiplies by rewriting coefficients instead of building trees.
+ */
+public class DensePolynomial implements Function {
+    private static final int MAX_DEGREE = 256;
+
+    private final double[] coefficients;
+    private int hash;
+    public DensePolynomial(double... coefficients) {
+        int length = coefficients.length;
+        // Drops the trailing zero coefficients but keeps the constant term.
+        while (length > 1 && coefficients[length - 1] == 0) {
+            length--;
+        }
+        this.coefficients = length == 0 ? new double[1] : Arrays.copyOf(coefficients, length);
+    }
+    /**
+    * Evaluates the polynomial at the given argument with Horner's method.
+    *
+    * @param x - the argument to the polynomial
+    *
+    * @return the value of the polynomial at x
+    */
+    public double value(double x) {
+        double result = coefficients[coefficients.length - 1];
+        for (int i = coefficients.length - 2; i >= 0; i--) {
+            result = result * x + coefficients[i];
+        }
+        return result;
+    }
+    /**
+    * Evaluates the polynomial over a block of arguments with Horner's method.
+    *
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        int degree = coefficients.length - 1;
+        Arrays.fill(out, outFrom, outFrom + length, coefficients[degree]);
+        for (int k = degree - 1; k >= 0; k--) {
+            double coefficient = coefficients[k];
+            for (int i = 0; i < length; i++) {
+                out[outFrom + i] = out[outFrom + i] * xs[from + i] + coefficient;
+            }
+        }
+    }
+    /**
+    * Returns the derivative of this polynomial, computed from the coefficients in linear time.
+    *
+    *
+    * @return the derivative as a DensePolynomial
+    */
+    public Function derivative() {
+        double[] result = new double[Math.max(1, coefficients.length - 1)];
+        for (int i = 1; i < coefficients.length; i++) {
+            result[i - 1] = i * coefficients[i];
+        }
+        return new DensePolynomial(result);
+    }
+    /**
+    * Returns the sum of this polynomial and another.
+    *
+    * @param other - the polynomial to add
+    *
+    * @return the sum of the two polynomials
+    */
+    public DensePolynomial add(DensePolynomial other) {
+        double[] result = Arrays.copyOf(coefficients, Math.max(coefficients.length, other.coefficients.length));
+        for (int i = 0; i < other.coefficients.length; i++) {
+            result[i] += other.coefficients[i];
+        }
+        return new DensePolynomial(result);
+    }
+    /**
+    * Returns the difference of this polynomial and another.
+    *
+    * @param other - the polynomial to subtract
+    *
+    * @return this polynomial minus other
+    */
+    public DensePolynomial subtract(DensePolynomial other) {
+        double[] result = Arrays.copyOf(coefficients, Math.max(coefficients.length, other.coefficients.length));
+        for (int i = 0; i < other.coefficients.length; i++) {
+            result[i] -= other.coefficients[i];
+        }
+        return new DensePolynomial(result);
+    }
+    /**
+    * Returns the product of this polynomial and another.
+    *
+    * @param other - the polynomial to multiply by
+    *
+    * @return the product of the two polynomials
+    */
+    public DensePolynomial multiply(DensePolynomial other) {
+        double[] result = new double[coefficients.length + other.coefficients.length - 1];
+        for (int i = 0; i < coefficients.length; i++) {
+            for (int j = 0; j < other.coefficients.length; j++) {
+                result[i + j] += coefficients[i] * other.coefficients[j];
+            }
+        }
+        return new DensePolynomial(result);
+    }
+    /**
+    * Returns this polynomial multiplied by a constant.
+    *
+    * @param factor - the constant to multiply by
+    *
+    * @return the scaled polynomial
+    */
+    public DensePolynomial scale(double factor) {
+        double[] result = new double[coefficients.length];
+        for (int i = 0; i < coefficients.length; i++) {
+            result[i] = coefficients[i] * factor;
+        }
+        return new DensePolynomial(result);
+    }
+    /**
+    * Returns this polynomial divided by a constant. Each coefficient is divided, which rounds as the division in the tree does, rather than multiplied by the reciprocal.
+    *
+    * @param divisor - the constant to divide by
+    *
+    * @return the divided polynomial
+    */
+    public DensePolynomial divide(double divisor) {
+        double[] result = new double[coefficients.length];
+        for (int i = 0; i < coefficients.length; i++) {
+            result[i] = coefficients[i] / divisor;
+        }
+        return new DensePolynomial(result);
+    }
+    /**
+    * Returns the degree of this polynomial. The zero polynomial has degree 0.
+    *
+    *
+    * @return the highest power with a non-zero coefficient
+    */
+    public int degree() {
+        return coefficients.length - 1;
+    }
+    /**
+    * Returns a copy of the coefficients of this polynomial.
+    *
+    *
+    * @return the coefficients, element i being the coefficient of x ^ i
+    */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+    /**
+    * Converts this polynomial into a tree of BinaryOp, Polynomial, Number and Variable nodes, one term per non-zero coefficient.
+    *
+    *
+    * @return a Function tree with the same values up to rounding, since the terms are summed instead of evaluated by Horner's rule
+    */
+    public Function toFunction() {
+        Function result = null;
+        for (int i = 0; i < coefficients.length; i++) {
+            // Skips the terms with a zero coefficient.
+            if (coefficients[i] == 0) {
+                continue;
+            }
+            Function term;
+            if (i == 0) {
+                term = new Number(coefficients[i]);
+            } else {
+                Function power = i == 1 ? new Variable() : new Polynomial(new Variable(), i);
+                term = coefficients[i] == 1 ? power : new BinaryOp(Operator.MULTIPLY, new Number(coefficients[i]), power);
+            }
+            result = result == null ? term : new BinaryOp(Operator.ADD, result, term);
+        }
+        return result == null ? new Number(0) : result;
+    }
+    /**
+    * Converts a polynomial-shaped tree into a dense polynomial. A tree is polynomial-shaped if it is built from Variable and Number with ADD, SUBTRACT, MULTIPLY, DIVIDE by a constant and non-negative integer powers.
+    *
+    * @param function - the tree to convert
+    *
+    * @return the dense polynomial equal to the tree, or null if the tree is not polynomial-shaped
+    */
+    public static DensePolynomial fromFunction(Function function) {
+        return dense(rewrite(function));
+    }
+    /**
+    * Replaces every maximal polynomial-shaped subtree of the given tree by a dense polynomial. The other nodes are kept, so Log and non-integer powers stay as they are.
+    *
+    * @param function - the tree to rewrite
+    *
+    * @return a tree whose polynomial parts are dense. Its values are the same up to rounding: the coefficients are multiplied out and divided by constants once, and the dense parts are evaluated by Horner's rule.
+    */
+    public static Function rewrite(Function function) {
+        // Rewrites the operands first and merges them if they are polynomials.
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            Function left = rewrite(binaryOp.getLeftOperand());
+            Function right = rewrite(binaryOp.getRightOperand());
+            DensePolynomial result = combine(binaryOp.getOperator(), dense(left), dense(right));
+            if (result != null) {
+                return result;
+            }
+            if (left == binaryOp.getLeftOperand() && right == binaryOp.getRightOperand()) {
+                return binaryOp;
+            }
+            return new BinaryOp(binaryOp.getOperator(), left, right);
+        }
+        if (function instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) function;
+            Function operand = rewrite(polynomial.getOperand());
+            DensePolynomial base = dense(operand);
+            double power = polynomial.getPower();
+            // Folds non-negative integer powers of constants as Polynomial computes them, and expands
+            // those of polynomials.
+            if (base != null && power >= 0 && power == Math.rint(power)) {
+                if (base.degree() == 0) {
+                    return new DensePolynomial(Polynomial.pow(base.coefficients[0], power));
+                }
+                if (base.degree() * power <= MAX_DEGREE) {
+                    DensePolynomial result = new DensePolynomial(1);
+                    for (int i = 0; i < power; i++) {
+                        result = result.multiply(base);
+                    }
+                    return result;
+                }
+            }
+            return operand == polynomial.getOperand() ? polynomial : new Polynomial(operand, power);
+        }
+        if (function instanceof Log) {
+            Log log = (Log) function;
+            Function operand = rewrite(log.getOperand());
+            return operand == log.getOperand() ? log : new Log(operand);
+        }
+        return function;
+    }
+    /**
+    * Returns the string representation of the tree returned by #toFunction ().
+    *
+    *
+    * @return the string representation of this polynomial as a sum of terms
+    */
+    public String toString() {
+        return toFunction().toString();
+    }
+    /**
+    * Compares this polynomial with another. Two dense polynomials are equal if they have the same coefficients.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is a DensePolynomial with the same coefficients
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is a dense polynomial with the same coefficients.
+        if (obj instanceof DensePolynomial) {
+            DensePolynomial other = (DensePolynomial) obj;
+            return Arrays.equals(coefficients, other.coefficients);
+        }
+        return false;
+    }
+    /**
+    * Returns a hash code computed from the coefficients.
+    *
+    *
+    * @return the hash code of the coefficients
+    */
+    public int hashCode() {
+        int result = hash;
+        // Computes the hash on first use.
+        if (result == 0) {
+            result = Arrays.hashCode(coefficients);
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the dense form of a Variable, a Number or a DensePolynomial, and null otherwise.
+     */
+    private static DensePolynomial dense(Function function) {
+        if (function instanceof DensePolynomial) {
+            return (DensePolynomial) function;
+        }
+        if (function instanceof Variable) {
+            return new DensePolynomial(0, 1);
+        }
+        if (function instanceof Number) {
+            return new DensePolynomial(((Number) function).getValue());
+        }
+        return null;
+    }
+
+    /**
+     * Applies the operator to two dense operands and returns null if the result is not a polynomial.
+     */
+    private static DensePolynomial combine(Operator operator, DensePolynomial left, DensePolynomial right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        // Combines the coefficients according to the operator.
+        switch (operator) {
+            case ADD:
+                return left.add(right);
+            case SUBTRACT:
+                return left.subtract(right);
+            case MULTIPLY:
+                return left.degree() + right.degree() <= MAX_DEGREE ? left.multiply(right) : null;
+            case DIVIDE:
+                return right.degree() == 0 && right.coefficients[0] != 0 ? left.divide(right.coefficients[0]) : null;
+            default:
+                throw new UnsupportedOperationException("Unsupported operator: " + operator);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The DerivativeEvent class is the Flight Recorder event of an instrumented derivative
+ * construction. Its duration is the time taken by derivative, and it records the sizes of the
+ * source and derivative trees. Like every Flight Recorder event, it costs nothing unless a
+ * recording enables it.
+ */
+@Name("functions.Derivative")
+@Label("Derivative Construction")
+@Category("Functions")
+@Description("Construction of the derivative of an instrumented function")
+class DerivativeEvent extends jdk.jfr.Event {
+    @Label("Source Nodes")
+    @Description("Number of nodes of the differentiated tree")
+    long sourceNodes;
+
+    @Label("Derivative Nodes")
+    @Description("Number of nodes of the derivative tree")
+    long derivativeNodes;
+
+    @Label("Derivative Objects")
+    @Description("Number of distinct node objects of the derivative tree")
+    int derivativeObjects;
+}
@@ -0,0 +1,63 @@
+/**
+ * The Dual class holds the value of a function and the value of its derivative at one argument, as
+ * computed by forward-mode automatic differentiation.
+ */
+public final class Dual {
+    private final double value;
+    private final double derivative;
+    public Dual(double value, double derivative) {
+        this.value = value;
+        this.derivative = derivative;
+    }
+    /**
+    * Returns the value of the function.
+    *
+    *
+    * @return the value of the function at the argument
+    */
+    public double getValue() {
+        return value;
+    }
+    /**
+    * Returns the value of the derivative of the function.
+    *
+    *
+    * @return the value of the derivative at the argument
+    */
+    public double getDerivative() {
+        return derivative;
+    }
+    /**
+    * Returns a string representation of this pair in the form value + derivative e.
+    *
+    *
+    * @return a string representation of the value and the derivative
+    */
+    public String toString() {
+        return value + " + " + derivative + "e";
+    }
+    /**
+    * Compares this pair with another. Two pairs are equal if their values and derivatives are equal.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is a Dual with the same value and derivative
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is a dual number.
+        if (obj instanceof Dual) {
+            Dual other = (Dual) obj;
+            return value == other.value && derivative == other.derivative;
+        }
+        return false;
+    }
+    /**
+    * Returns a hash code for this pair consistent with #equals ( Object ).
+    *
+    *
+    * @return the hash code of the value and the derivative
+    */
+    public int hashCode() {
+        return 31 * Double.hashCode(value + 0.0) + Double.hashCode(derivative + 0.0);
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The EvaluationCache class memoizes the values of Function nodes at given arguments. It is a
+ * bounded set-associative table: every (node, x) key maps to a set of WAYS entries, and a full set
+ * evicts its least recently used entry. Keys are stored in primitive arrays, so they are never
+ * boxed. Sets are guarded by a fixed number of striped locks, so one cache can be shared by many
+ * threads.
+ */
+public class EvaluationCache {
+    private static final int WAYS = 8;
+    private static final int MAX_STRIPES = 64;
+
+    private final int[] nodes;
+    private final long[] arguments;
+    private final double[] values;
+    private final long[] stamps;
+    private final long[] clocks;
+    private final Object[] locks;
+    private final int setMask;
+    private final int stripeMask;
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    public EvaluationCache(int capacity) {
+        // Checks that the cache can hold at least one set.
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        int stripes = Math.min(MAX_STRIPES, sets);
+        this.nodes = new int[sets * WAYS];
+        this.arguments = new long[sets * WAYS];
+        this.values = new double[sets * WAYS];
+        this.stamps = new long[sets * WAYS];
+        this.clocks = new long[stripes];
+        this.locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new Object();
+        }
+        this.setMask = sets - 1;
+        this.stripeMask = stripes - 1;
+    }
+    /**
+    * Returns the cached value of the node at the given argument, computing and storing it on a miss. The value is computed outside the lock, so concurrent misses on the same key may both compute it.
+    *
+    * @param node - the identifier of the node, as returned by #newNode ()
+    * @param x - the argument
+    * @param function - the function computing the value on a miss
+    *
+    * @return the value of the function at x
+    */
+    public double value(int node, double x, Function function) {
+        long argument = Double.doubleToLongBits(x);
+        int set = set(node, argument);
+        int stripe = set & stripeMask;
+        int base = set * WAYS;
+        synchronized (locks[stripe]) {
+            // Returns the stored value if the key is in its set.
+            for (int i = base; i < base + WAYS; i++) {
+                if (nodes[i] == node && arguments[i] == argument) {
+                    stamps[i] = ++clocks[stripe];
+                    hits.increment();
+                    return values[i];
+                }
+            }
+        }
+        misses.increment();
+        double value = function.value(x);
+        synchronized (locks[stripe]) {
+            int victim = base;
+            // Stores the value in a free entry or in place of the least recently used one.
+            for (int i = base; i < base + WAYS; i++) {
+                if (nodes[i] == node && arguments[i] == argument || nodes[i] == 0) {
+                    victim = i;
+                    break;
+                }
+                if (stamps[i] < stamps[victim]) {
+                    victim = i;
+                }
+            }
+            if (nodes[victim] != 0 && (nodes[victim] != node || arguments[victim] != argument)) {
+                evictions.increment();
+            }
+            nodes[victim] = node;
+            arguments[victim] = argument;
+            values[victim] = value;
+            stamps[victim] = ++clocks[stripe];
+        }
+        return value;
+    }
+    /**
+    * Returns a new node identifier. Values stored under different identifiers never collide.
+    *
+    *
+    * @return a positive identifier not returned before by this cache
+    */
+    public int newNode() {
+        return nextNode.incrementAndGet();
+    }
+    /**
+    * Removes every entry from the cache. The counters are kept.
+    */
+    public void clear() {
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int set = stripe; set <= setMask; set += locks.length) {
+                    Arrays.fill(nodes, set * WAYS, set * WAYS + WAYS, 0);
+                }
+            }
+        }
+    }
+    /**
+    * Returns the number of entries the cache can hold.
+    *
+    *
+    * @return the capacity of the cache, rounded to a whole number of sets
+    */
+    public int getCapacity() {
+        return nodes.length;
+    }
+    /**
+    * Returns the number of lookups that found their value in the cache.
+    *
+    *
+    * @return the number of hits so far
+    */
+    public long getHits() {
+        return hits.sum();
+    }
+    /**
+    * Returns the number of lookups that had to compute their value.
+    *
+    *
+    * @return the number of misses so far
+    */
+    public long getMisses() {
+        return misses.sum();
+    }
+    /**
+    * Returns the number of entries that were replaced to make room for new ones.
+    *
+    *
+    * @return the number of evictions so far
+    */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    /**
+    * Returns a summary of the counters of this cache.
+    *
+    *
+    * @return the capacity, hits, misses and evictions in human readable form
+    */
+    public String toString() {
+        return "EvaluationCache[capacity=" + getCapacity() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + "]";
+    }
+
+    private int set(int node, long argument) {
+        long hash = argument * 0x9E3779B97F4A7C15L + node;
+        hash ^= hash >>> 32;
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & setMask;
+    }
+}
@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * The EvaluationEvent class is the Flight Recorder event of an instrumented batch evaluation. By
+ * default only evaluations longer than one millisecond are recorded. Like every Flight Recorder
+ * event, it costs nothing unless a recording enables it.
+ */
+@Name("functions.Evaluation")
+@Label("Large Evaluation")
+@Category("Functions")
+@Description("Batch evaluation of an instrumented function")
+@Threshold("1 ms")
+class EvaluationEvent extends jdk.jfr.Event {
+    @Label("Arguments")
+    @Description("Number of arguments evaluated")
+    int arguments;
+
+    @Label("NaN Results")
+    @Description("Number of arguments whose value was NaN")
+    int nanResults;
+}
@@ -0,0 +1,220 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The EvaluationProfile class collects the measurements of InstrumentedFunction wrappers. One in
+ * every samplingInterval evaluations is measured node by node: each node adds its count, its NaN
+ * results and its self time, that is its time without the time of its operands, to the counters
+ * of its kind, and the self time to a histogram of power-of-two buckets. All counters are
+ * LongAdders, so many threads can share one profile with little contention.
+ */
+public class EvaluationProfile {
+    /**
+     * The kinds of nodes that are measured separately. BinaryOp nodes are split by operator.
+     */
+    public enum Kind {
+        VARIABLE, NUMBER, ADD, SUBTRACT, MULTIPLY, DIVIDE, LOG, POLYNOMIAL, OTHER;
+
+        private static final Kind[] VALUES = values();
+
+        /**
+        * Returns the kind of the given node.
+        *
+        * @param function - the node to classify
+        *
+        * @return the kind of the node
+        */
+        public static Kind of(Function function) {
+            // Returns the kind of the node type.
+            if (function instanceof BinaryOp) {
+                return VALUES[ADD.ordinal() + ((BinaryOp) function).getOperator().ordinal()];
+            }
+            if (function instanceof Variable) {
+                return VARIABLE;
+            }
+            if (function instanceof Number) {
+                return NUMBER;
+            }
+            if (function instanceof Log) {
+                return LOG;
+            }
+            if (function instanceof Polynomial) {
+                return POLYNOMIAL;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * The number of histogram buckets. Bucket i counts self times t with 2^(i-1) <= t < 2^i
+     * nanoseconds, bucket 0 counts times below 1 ns, and the last bucket counts everything above.
+     */
+    public static final int BUCKETS = 40;
+
+    private final int samplingInterval;
+    private final LongAdder sampledCalls = new LongAdder();
+    private final LongAdder nanResults = new LongAdder();
+    private final LongAdder[] evaluations = adders(Kind.values().length);
+    private final LongAdder[] nans = adders(Kind.values().length);
+    private final LongAdder[] nanos = adders(Kind.values().length);
+    private final LongAdder[][] histograms = new LongAdder[Kind.values().length][];
+    public EvaluationProfile() {
+        this(1024);
+    }
+    public EvaluationProfile(int samplingInterval) {
+        // Checks that the interval is a power of two so that sampling is a mask test.
+        if (samplingInterval <= 0 || Integer.bitCount(samplingInterval) != 1) {
+            throw new IllegalArgumentException("Sampling interval must be a power of two: " + samplingInterval);
+        }
+        this.samplingInterval = samplingInterval;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = adders(BUCKETS);
+        }
+    }
+    /**
+    * Returns the number of evaluations between two measured ones, on average.
+    *
+    *
+    * @return the sampling interval
+    */
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+    /**
+    * Returns the number of evaluations that were measured node by node.
+    *
+    *
+    * @return the number of sampled evaluations
+    */
+    public long getSampledCalls() {
+        return sampledCalls.sum();
+    }
+    /**
+    * Returns the number of evaluations, sampled or not, whose result was NaN.
+    *
+    *
+    * @return the number of NaN results of the instrumented functions
+    */
+    public long getNaNResults() {
+        return nanResults.sum();
+    }
+    /**
+    * Returns the number of sampled evaluations of nodes of the given kind.
+    *
+    * @param kind - the kind of node
+    *
+    * @return the number of measured evaluations of that kind
+    */
+    public long getEvaluations(Kind kind) {
+        return evaluations[kind.ordinal()].sum();
+    }
+    /**
+    * Returns the number of sampled evaluations of nodes of the given kind that returned NaN.
+    *
+    * @param kind - the kind of node
+    *
+    * @return the number of NaN values of that kind
+    */
+    public long getNaNs(Kind kind) {
+        return nans[kind.ordinal()].sum();
+    }
+    /**
+    * Returns the self time of the sampled evaluations of nodes of the given kind.
+    *
+    * @param kind - the kind of node
+    *
+    * @return the total self time in nanoseconds
+    */
+    public long getNanos(Kind kind) {
+        return nanos[kind.ordinal()].sum();
+    }
+    /**
+    * Returns the histogram of the self times of the given kind, as described for BUCKETS.
+    *
+    * @param kind - the kind of node
+    *
+    * @return the counts of the buckets
+    */
+    public long[] getHistogram(Kind kind) {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = histograms[kind.ordinal()][i].sum();
+        }
+        return result;
+    }
+    /**
+    * Resets every counter to zero.
+    */
+    public void reset() {
+        sampledCalls.reset();
+        nanResults.reset();
+        for (int i = 0; i < evaluations.length; i++) {
+            evaluations[i].reset();
+            nans[i].reset();
+            nanos[i].reset();
+            for (LongAdder bucket : histograms[i]) {
+                bucket.reset();
+            }
+        }
+    }
+    /**
+    * Returns a summary of the profile, one entry per kind that was evaluated.
+    *
+    *
+    * @return the sampled counts, NaN counts and mean self times in human readable form
+    */
+    public String toString() {
+        StringBuilder builder = new StringBuilder("EvaluationProfile[sampled=").append(getSampledCalls())
+                .append(", nanResults=").append(getNaNResults());
+        for (Kind kind : Kind.values()) {
+            long count = getEvaluations(kind);
+            if (count > 0) {
+                builder.append(", ").append(kind).append("={count=").append(count)
+                        .append(", nans=").append(getNaNs(kind))
+                        .append(", meanNanos=").append((double) getNanos(kind) / count).append('}');
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Returns true if the next evaluation on this thread should be measured.
+     */
+    boolean sample() {
+        return (ThreadLocalRandom.current().nextInt() & samplingInterval - 1) == 0;
+    }
+
+    void recordCall(boolean sampled, double result) {
+        if (sampled) {
+            sampledCalls.increment();
+        }
+        if (Double.isNaN(result)) {
+            nanResults.increment();
+        }
+    }
+
+    void recordNaNResults(int count) {
+        if (count > 0) {
+            nanResults.add(count);
+        }
+    }
+
+    void recordNode(Kind kind, long selfNanos, double value) {
+        int index = kind.ordinal();
+        evaluations[index].increment();
+        if (Double.isNaN(value)) {
+            nans[index].increment();
+        }
+        long time = Math.max(0, selfNanos);
+        nanos[index].add(time);
+        histograms[index][Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(time))].increment();
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] result = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The ExpressionFactory class builds hash-consed Function trees. Every node it returns is interned,
+ * so structurally equal subexpressions are one shared object and compare equal by reference. Trees
+ * built by one factory form a DAG whose size stays close to linear under repeated differentiation.
+ * A factory is not thread-safe.
+ */
+public class ExpressionFactory {
+    private final Map<Function, Function> nodes = new HashMap<>();
+    private final Map<Function, Function> derivatives = new IdentityHashMap<>();
+    private final Function variable = intern(new Variable());
+    /**
+    * Returns the interned variable.
+    *
+    *
+    * @return the variable node of this factory
+    */
+    public Function variable() {
+        return variable;
+    }
+    /**
+    * Returns the interned constant with the given value.
+    *
+    * @param value - the value of the constant
+    *
+    * @return the number node of this factory holding value
+    */
+    public Function number(double value) {
+        return canonical(new Number(value));
+    }
+    /**
+    * Returns the interned binary operation of the given operands.
+    *
+    * @param operator - the operator to apply
+    * @param leftOperand - the left operand
+    * @param rightOperand - the right operand
+    *
+    * @return the binary operation node of this factory
+    */
+    public Function binaryOp(Operator operator, Function leftOperand, Function rightOperand) {
+        return canonical(new BinaryOp(operator, intern(leftOperand), intern(rightOperand)));
+    }
+    /**
+    * Returns the interned logarithm of the given operand.
+    *
+    * @param operand - the operand of the logarithm
+    *
+    * @return the log node of this factory
+    */
+    public Function log(Function operand) {
+        return canonical(new Log(intern(operand)));
+    }
+    /**
+    * Returns the interned power of the given operand.
+    *
+    * @param operand - the base of the power
+    * @param power - the exponent
+    *
+    * @return the polynomial node of this factory
+    */
+    public Function polynomial(Function operand, double power) {
+        return canonical(new Polynomial(intern(operand), power));
+    }
+    /**
+    * Returns the interned node structurally equal to the given tree. The operands are interned first, so the result shares every common subexpression.
+    *
+    * @param function - the tree to intern
+    *
+    * @return the interned node equal to function
+    */
+    public Function intern(Function function) {
+        Function known = nodes.get(function);
+        // Returns the interned node if an equal tree was interned before.
+        if (known != null) {
+            return known;
+        }
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            Function left = intern(binaryOp.getLeftOperand());
+            Function right = intern(binaryOp.getRightOperand());
+            // Reuses the node if its operands are interned already.
+            if (left == binaryOp.getLeftOperand() && right == binaryOp.getRightOperand()) {
+                return canonical(function);
+            }
+            return canonical(new BinaryOp(binaryOp.getOperator(), left, right));
+        }
+        if (function instanceof Log) {
+            Log log = (Log) function;
+            Function operand = intern(log.getOperand());
+            return canonical(operand == log.getOperand() ? log : new Log(operand));
+        }
+        if (function instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) function;
+            Function operand = intern(polynomial.getOperand());
+            return canonical(operand == polynomial.getOperand() ? polynomial
+                    : new Polynomial(operand, polynomial.getPower()));
+        }
+        return canonical(function);
+    }
+    /**
+    * Returns the interned derivative of the given tree. It is structurally equal to function.derivative (), but the derivative of every shared node is built only once.
+    *
+    * @param function - the tree to differentiate
+    *
+    * @return the interned derivative of function
+    */
+    public Function derivative(Function function) {
+        Function node = intern(function);
+        Function result = derivatives.get(node);
+        // Returns the derivative directly if it was built before.
+        if (result != null) {
+            return result;
+        }
+        if (node instanceof BinaryOp) {
+            result = binaryOpDerivative((BinaryOp) node);
+        } else if (node instanceof Log) {
+            Function operand = ((Log) node).getOperand();
+            result = binaryOp(Operator.DIVIDE, derivative(operand), operand);
+        } else if (node instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) node;
+            Function operand = polynomial.getOperand();
+            result = binaryOp(Operator.MULTIPLY,
+                    number(polynomial.getPower()),
+                    binaryOp(Operator.MULTIPLY,
+                            polynomial(operand, polynomial.getPower() - 1),
+                            derivative(operand)));
+        } else {
+            result = intern(node.derivative());
+        }
+        derivatives.put(node, result);
+        return result;
+    }
+    /**
+    * Returns the number of distinct nodes interned by this factory.
+    *
+    *
+    * @return the number of interned nodes
+    */
+    public int size() {
+        return nodes.size();
+    }
+
+    private Function binaryOpDerivative(BinaryOp binaryOp) {
+        Function left = binaryOp.getLeftOperand();
+        Function right = binaryOp.getRightOperand();
+        Function leftDerivative = derivative(left);
+        Function rightDerivative = derivative(right);
+        // Applies the same rules as BinaryOp#derivative.
+        switch (binaryOp.getOperator()) {
+            case ADD:
+                return binaryOp(Operator.ADD, leftDerivative, rightDerivative);
+            case SUBTRACT:
+                return binaryOp(Operator.SUBTRACT, leftDerivative, rightDerivative);
+            case MULTIPLY:
+                return binaryOp(Operator.ADD,
+                        binaryOp(Operator.MULTIPLY, left, rightDerivative),
+                        binaryOp(Operator.MULTIPLY, leftDerivative, right));
+            case DIVIDE:
+                return binaryOp(Operator.DIVIDE,
+                        binaryOp(Operator.SUBTRACT,
+                                binaryOp(Operator.MULTIPLY, leftDerivative, right),
+                                binaryOp(Operator.MULTIPLY, left, rightDerivative)),
+                        binaryOp(Operator.MULTIPLY, right, right));
+            default:
+                throw new UnsupportedOperationException("Unsupported operator: " + binaryOp.getOperator());
+        }
+    }
+
+    /**
+     * Returns the interned node equal to the given node, whose operands must already be interned.
+     */
+    private Function canonical(Function function) {
+        Function known = nodes.putIfAbsent(function, function);
+        return known == null ? function : known;
+    }
+}
@@ -0,0 +1,276 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The ExpressionStore class keeps encoded functions in an append-only file. The file is a header
+ * followed by records, each the varint length of an encoded function and the bytes written by
+ * FunctionCodec. The file is read through memory mappings of SEGMENT_SIZE bytes, and records
+ * never cross a segment, so opening a store only scans the record lengths, and a stored function
+ * is evaluated from the mapped bytes without building its tree. A zero length ends the records of
+ * a segment, and the file may end in zeros where the mapping of the last segment was grown past
+ * the records. Appends are synchronized, and the functions returned by #get ( int ) can be used
+ * from any thread.
+ */
+public final class ExpressionStore implements Closeable {
+    static final int SEGMENT_SIZE = 1 << 30;
+    private static final int MIN_MAPPING = 1 << 16;
+    private static final int MAGIC = 0x464E5354;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private long[] offsets = new long[1024];
+    private int size;
+    private long end;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[1];
+    private ExpressionStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        // Writes the header of a new file and checks the header of an existing one.
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            write(header, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an expression store");
+            }
+        }
+        end = HEADER_SIZE;
+        scan(channel.size());
+    }
+    /**
+    * Opens the store in the given file, creating the file if it does not exist.
+    *
+    * @param file - the file holding the store
+    *
+    * @return the opened store
+    */
+    public static ExpressionStore open(Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new ExpressionStore(channel);
+        } catch (IOException e) {
+            closeQuietly(channel, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+    * Encodes the function and appends it to the store.
+    *
+    * @param function - the function to store
+    *
+    * @return the index of the stored function
+    */
+    public synchronized int append(Function function) {
+        byte[] bytes = FunctionCodec.encode(function);
+        int length = FunctionCodec.varintSize(bytes.length) + bytes.length;
+        // Checks that the record fits into one segment.
+        if (length > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Encoded function is larger than a segment: " + length);
+        }
+        long offset = end;
+        // Starts a new segment if the record does not fit into the current one.
+        if (offset % SEGMENT_SIZE + length > SEGMENT_SIZE) {
+            offset = (offset / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+            // Marks the rest of the segment as unused with a zero length.
+            write(ByteBuffer.allocate(1), end);
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        FunctionCodec.writeVarint(record, bytes.length);
+        record.put(bytes).flip();
+        write(record, offset);
+        add(offset);
+        end = offset + length;
+        return size - 1;
+    }
+    /**
+    * Returns the function with the given index. The function is evaluated straight from the mapped file; its tree is only built by derivative and toString.
+    *
+    * @param index - the index returned by #append ( Function )
+    *
+    * @return the stored function
+    */
+    public Function get(int index) {
+        long offset;
+        ByteBuffer segment;
+        synchronized (this) {
+            // Checks that the index refers to a stored function.
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for store of size " + size);
+            }
+            offset = offsets[index];
+            segment = segment(offset, end);
+        }
+        ByteBuffer record = segment.duplicate();
+        record.position((int) (offset % SEGMENT_SIZE));
+        int length = (int) FunctionCodec.readLongVarint(record);
+        record.limit(record.position() + length);
+        return new StoredFunction(record.slice());
+    }
+    /**
+    * Returns the number of functions in the store.
+    *
+    *
+    * @return the number of stored functions
+    */
+    public synchronized int size() {
+        return size;
+    }
+    /**
+    * Writes the appended functions to the storage device.
+    */
+    public void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+    * Closes the file of the store. The functions returned by #get ( int ) stay usable.
+    */
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the record lengths from the end of the header up to the end of the file.
+     */
+    private void scan(long fileSize) throws IOException {
+        while (end < fileSize) {
+            ByteBuffer segment = segment(end, fileSize);
+            int position = (int) (end % SEGMENT_SIZE);
+            int length = segment.get(position) == 0 ? 0 : varint(segment, position);
+            // Skips to the next segment at a zero length, or stops at the zeros after the last record.
+            if (length == 0) {
+                long next = (end / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+                if (next >= fileSize) {
+                    break;
+                }
+                end = next;
+                continue;
+            }
+            long recordEnd = end + FunctionCodec.varintSize(length) + length;
+            if (recordEnd > fileSize) {
+                throw new IOException("Truncated record at offset " + end);
+            }
+            add(end);
+            end = recordEnd;
+        }
+    }
+
+    private static int varint(ByteBuffer segment, int position) {
+        ByteBuffer in = segment.duplicate();
+        in.position(position);
+        return (int) FunctionCodec.readLongVarint(in);
+    }
+
+    private void add(long offset) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size++] = offset;
+    }
+
+    /**
+     * Returns the mapping of the segment holding the offset, mapping it again if it does not reach
+     * the limit, or the end of the segment if that comes first. A new mapping is at least twice as
+     * long as the one it replaces, extending the file with zeros, so a run of appends and gets
+     * maps a segment a logarithmic number of times.
+     */
+    private ByteBuffer segment(long offset, long limit) {
+        int index = (int) (offset / SEGMENT_SIZE);
+        if (index >= segments.length) {
+            segments = Arrays.copyOf(segments, index + 1);
+        }
+        MappedByteBuffer segment = segments[index];
+        long start = (long) index * SEGMENT_SIZE;
+        long required = Math.min(limit - start, SEGMENT_SIZE);
+        if (segment == null || segment.capacity() < required) {
+            long length = Math.max(required, segment == null ? MIN_MAPPING : 2L * segment.capacity());
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, SEGMENT_SIZE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    private void write(ByteBuffer buffer, long position) {
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel, Exception cause) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * A function evaluated from its encoded bytes.
+     */
+    private static final class StoredFunction implements Function {
+        private final ByteBuffer bytes;
+
+        StoredFunction(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public double value(double x) {
+            return FunctionCodec.value(bytes, 0, x);
+        }
+
+        @Override
+        public Function derivative() {
+            return decode().derivative();
+        }
+
+        @Override
+        public String toString() {
+            return decode().toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StoredFunction && bytes.equals(((StoredFunction) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return bytes.hashCode();
+        }
+
+        private Function decode() {
+            return FunctionCodec.decode(bytes.duplicate());
+        }
+    }
+}
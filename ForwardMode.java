@@ -0,0 +1,218 @@
+/**
+ * The ForwardMode class evaluates Function trees together with their derivatives in a single pass.
+ * It applies the rules of BinaryOp#derivative, Log#derivative and Polynomial#derivative to numbers
+ * instead of building a derivative tree.
+ */
+public final class ForwardMode {
+    private static final int MAX_EXPANDED_POWER = 64;
+
+    private ForwardMode() {
+    }
+    /**
+    * Evaluates the function and its first derivative at the given argument without building a derivative tree.
+    *
+    * @param function - the function to evaluate
+    * @param x - the argument to the function
+    *
+    * @return the value of the function and of its derivative at x
+    */
+    public static Dual valueAndDerivative(Function function, double x) {
+        double[] derivative = new double[1];
+        double value = evaluate(function, x, derivative);
+        return new Dual(value, derivative[0]);
+    }
+    /**
+    * Evaluates the function and its first order derivatives at the given argument in one pass over the tree, using truncated Taylor series arithmetic.
+    *
+    * @param function - the function to evaluate
+    * @param x - the argument to the function
+    * @param order - the highest derivative to compute. Must not be negative.
+    *
+    * @return an array whose element k is the k-th derivative of the function at x
+    */
+    public static double[] derivatives(Function function, double x, int order) {
+        // Checks that the order is valid.
+        if (order < 0) {
+            throw new IllegalArgumentException("Order must not be negative: " + order);
+        }
+        double[] series = taylor(function, x, order);
+        double factorial = 1;
+        for (int k = 1; k <= order; k++) {
+            factorial *= k;
+            series[k] *= factorial;
+        }
+        return series;
+    }
+
+    /**
+     * Returns the value of the function at x and stores the value of its derivative in derivative[0].
+     */
+    private static double evaluate(Function function, double x, double[] derivative) {
+        // Applies the derivative rule of the node type.
+        if (function instanceof Variable) {
+            derivative[0] = 1;
+            return x;
+        }
+        if (function instanceof Number) {
+            derivative[0] = 0;
+            return ((Number) function).getValue();
+        }
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            double left = evaluate(binaryOp.getLeftOperand(), x, derivative);
+            double leftDerivative = derivative[0];
+            double right = evaluate(binaryOp.getRightOperand(), x, derivative);
+            double rightDerivative = derivative[0];
+            switch (binaryOp.getOperator()) {
+                case ADD:
+                    derivative[0] = leftDerivative + rightDerivative;
+                    return left + right;
+                case SUBTRACT:
+                    derivative[0] = leftDerivative - rightDerivative;
+                    return left - right;
+                case MULTIPLY:
+                    derivative[0] = left * rightDerivative + leftDerivative * right;
+                    return left * right;
+                case DIVIDE:
+                    derivative[0] = (leftDerivative * right - left * rightDerivative) / (right * right);
+                    return left / right;
+                default:
+                    throw new UnsupportedOperationException("Unsupported operator: " + binaryOp.getOperator());
+            }
+        }
+        if (function instanceof Log) {
+            double operand = evaluate(((Log) function).getOperand(), x, derivative);
+            derivative[0] = derivative[0] / operand;
+            return Math.log(operand);
+        }
+        if (function instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) function;
+            double power = polynomial.getPower();
+            double operand = evaluate(polynomial.getOperand(), x, derivative);
+            derivative[0] = power * (Polynomial.pow(operand, power - 1) * derivative[0]);
+            return Polynomial.pow(operand, power);
+        }
+        derivative[0] = function.derivative().value(x);
+        return function.value(x);
+    }
+
+    /**
+     * Returns the Taylor coefficients f(x), f'(x), f''(x) / 2!, ... of the function up to the order.
+     */
+    private static double[] taylor(Function function, double x, int order) {
+        double[] result = new double[order + 1];
+        // Combines the series of the operands according to the node type.
+        if (function instanceof Variable) {
+            result[0] = x;
+            if (order > 0) {
+                result[1] = 1;
+            }
+            return result;
+        }
+        if (function instanceof Number) {
+            result[0] = ((Number) function).getValue();
+            return result;
+        }
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            double[] left = taylor(binaryOp.getLeftOperand(), x, order);
+            double[] right = taylor(binaryOp.getRightOperand(), x, order);
+            switch (binaryOp.getOperator()) {
+                case ADD:
+                    for (int n = 0; n <= order; n++) {
+                        result[n] = left[n] + right[n];
+                    }
+                    return result;
+                case SUBTRACT:
+                    for (int n = 0; n <= order; n++) {
+                        result[n] = left[n] - right[n];
+                    }
+                    return result;
+                case MULTIPLY:
+                    return multiply(left, right);
+                case DIVIDE:
+                    for (int n = 0; n <= order; n++) {
+                        double sum = left[n];
+                        for (int j = 1; j <= n; j++) {
+                            sum -= right[j] * result[n - j];
+                        }
+                        result[n] = sum / right[0];
+                    }
+                    return result;
+                default:
+                    throw new UnsupportedOperationException("Unsupported operator: " + binaryOp.getOperator());
+            }
+        }
+        if (function instanceof Log) {
+            double[] operand = taylor(((Log) function).getOperand(), x, order);
+            result[0] = Math.log(operand[0]);
+            for (int n = 1; n <= order; n++) {
+                double sum = 0;
+                for (int j = 1; j < n; j++) {
+                    sum += j * result[j] * operand[n - j];
+                }
+                result[n] = (operand[n] - sum / n) / operand[0];
+            }
+            return result;
+        }
+        if (function instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) function;
+            return power(taylor(polynomial.getOperand(), x, order), polynomial.getPower());
+        }
+        // Falls back to the symbolic derivatives for unknown node types.
+        Function derivative = function;
+        double factorial = 1;
+        for (int n = 0; n <= order; n++) {
+            if (n > 0) {
+                derivative = derivative.derivative();
+                factorial *= n;
+            }
+            result[n] = derivative.value(x) / factorial;
+        }
+        return result;
+    }
+
+    private static double[] multiply(double[] left, double[] right) {
+        double[] result = new double[left.length];
+        for (int n = 0; n < result.length; n++) {
+            double sum = 0;
+            for (int j = 0; j <= n; j++) {
+                sum += left[j] * right[n - j];
+            }
+            result[n] = sum;
+        }
+        return result;
+    }
+
+    /**
+     * Raises a series to a power. Small non-negative integer powers are expanded by squaring so that
+     * a zero constant term is handled exactly; other powers use the recurrence for a ^ p.
+     */
+    private static double[] power(double[] operand, double power) {
+        if (power >= 0 && power <= MAX_EXPANDED_POWER && power == Math.rint(power)) {
+            double[] result = new double[operand.length];
+            result[0] = 1;
+            double[] square = operand;
+            // Multiplies the squares that correspond to the set bits of the power.
+            for (int bits = (int) power; bits > 0; bits >>= 1) {
+                if ((bits & 1) != 0) {
+                    result = multiply(result, square);
+                }
+                if (bits > 1) {
+                    square = multiply(square, square);
+                }
+            }
+            return result;
+        }
+        double[] result = new double[operand.length];
+        result[0] = Polynomial.pow(operand[0], power);
+        for (int n = 1; n < result.length; n++) {
+            double sum = 0;
+            for (int j = 1; j <= n; j++) {
+                sum += (power * j - (n - j)) * operand[j] * result[n - j];
+            }
+            result[n] = sum / (n * operand[0]);
+        }
+        return result;
+    }
+}
@@ -19,4 +19,55 @@ public interface Function {
     * @return the derivative of this function or null if there is no derivative in the sense of the argument's
     */
     Function derivative();
+    /**
+    * Evaluates the function at every argument in xs and stores the results in out. The arguments are processed in blocks of CHUNK_SIZE so that the intermediate results of each node stay in cache.
+    * 
+    * @param xs - the arguments to evaluate
+    * @param out - the array receiving the values. Must be at least as long as xs. May be xs itself, in which case the values replace the arguments.
+    */
+    default void value(double[] xs, double[] out) {
+        // Checks that every argument has a place for its value.
+        if (out.length < xs.length) {
+            throw new IllegalArgumentException("Output array is shorter than the input array");
+        }
+        // Copies each block of arguments first if the values overwrite them, since nodes write out before reading all of xs.
+        double[] block = out == xs ? new double[Math.min(CHUNK_SIZE, xs.length)] : null;
+        for (int from = 0; from < xs.length; from += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, xs.length - from);
+            if (block != null) {
+                System.arraycopy(xs, from, block, 0, length);
+                value(block, 0, out, from, length);
+            } else {
+                value(xs, from, out, from, length);
+            }
+        }
+    }
+    /**
+    * Evaluates the function at xs[from] ... xs[from + length - 1] and stores the results in out starting at outFrom. Node types override this with one tight loop per node; this default is the per-element reference.
+    * 
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values. The range written must not overlap the range of xs that is read.
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    default void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outFrom + i] = value(xs[from + i]);
+        }
+    }
+    /**
+    * Evaluates the function and its derivative at the given argument in one pass, without building the derivative tree.
+    * 
+    * @param x - The argument to evaluate.
+    * 
+    * @return the value of the function and of its derivative at x
+    */
+    default Dual valueAndDerivative(double x) {
+        return ForwardMode.valueAndDerivative(this, x);
+    }
+    /**
+    * The number of arguments evaluated per block by #value ( double[] double[] ).
+    */
+    int CHUNK_SIZE = 1024;
 }
\ No newline at end of file
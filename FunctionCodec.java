@@ -0,0 +1,362 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The FunctionCodec class converts Function trees to and from a compact binary form. An encoded
+ * tree starts with the number of distinct nodes, followed by the nodes in post-order. Every node
+ * starts with a varint tag; Number and Polynomial add a little-endian double, IndexedVariable adds
+ * its varint index and its name as a varint length and UTF-8 bytes, and the operands of BinaryOp,
+ * Log and Polynomial are varint back-references, counted from the node itself, to nodes written
+ * before. Subtrees that are equal down to the bits of their constants are written once,
+ * so the form of a tree depends only on its structure and constants, and such trees have equal
+ * bytes. Zeros of opposite sign are kept apart, since they divide to different infinities.
+ */
+public final class FunctionCodec {
+    static final int VARIABLE = 0;
+    static final int NUMBER = 1;
+    static final int LOG = 2;
+    static final int POLYNOMIAL = 3;
+    static final int BINARY_OP = 4;
+    static final int INDEXED_VARIABLE = 64;
+
+    private FunctionCodec() {
+    }
+    /**
+    * Encodes the function into its binary form.
+    *
+    * @param function - the function to encode. Must consist of BinaryOp, Log, Polynomial, Number, Variable and IndexedVariable nodes.
+    *
+    * @return the bytes of the encoded function
+    */
+    public static byte[] encode(Function function) {
+        Map<Function, Integer> ids = new IdentityHashMap<>();
+        Map<Key, Integer> written = new HashMap<>();
+        Output nodes = new Output();
+        IterativeEngine.WorkStack work = new IterativeEngine.WorkStack(function);
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            // Gives the operands ids first and skips the nodes that were reached already.
+            if (ids.containsKey(node) || !expanded && work.expand(node)) {
+                continue;
+            }
+            Key key;
+            if (node instanceof BinaryOp) {
+                BinaryOp binaryOp = (BinaryOp) node;
+                key = new Key(BINARY_OP + binaryOp.getOperator().ordinal(), ids.get(binaryOp.getLeftOperand()),
+                        ids.get(binaryOp.getRightOperand()), 0);
+            } else if (node instanceof Log) {
+                key = new Key(LOG, ids.get(((Log) node).getOperand()), -1, 0);
+            } else if (node instanceof Polynomial) {
+                Polynomial polynomial = (Polynomial) node;
+                key = new Key(POLYNOMIAL, ids.get(polynomial.getOperand()), -1,
+                        Double.doubleToRawLongBits(polynomial.getPower()));
+            } else if (node instanceof Number) {
+                key = new Key(NUMBER, -1, -1, Double.doubleToRawLongBits(((Number) node).getValue()));
+            } else if (node instanceof Variable) {
+                key = new Key(VARIABLE, -1, -1, 0);
+            } else if (node instanceof IndexedVariable) {
+                IndexedVariable variable = (IndexedVariable) node;
+                key = new Key(INDEXED_VARIABLE, -1, -1, variable.getIndex(), variable.getName());
+            } else {
+                throw new IllegalArgumentException("Unsupported node type: " + node.getClass().getName());
+            }
+            Integer existing = written.get(key);
+            // Shares the node written for an equal subtree instead of writing it again.
+            if (existing != null) {
+                ids.put(node, existing);
+                continue;
+            }
+            int id = written.size();
+            nodes.writeVarint(key.tag);
+            if (key.left >= 0) {
+                nodes.writeVarint(id - key.left);
+            }
+            if (key.right >= 0) {
+                nodes.writeVarint(id - key.right);
+            }
+            if (key.tag == NUMBER || key.tag == POLYNOMIAL) {
+                nodes.writeDouble(Double.longBitsToDouble(key.bits));
+            }
+            if (key.tag == INDEXED_VARIABLE) {
+                nodes.writeVarint(key.bits);
+                nodes.writeString(key.name);
+            }
+            written.put(key, id);
+            ids.put(node, id);
+        }
+        Output result = new Output();
+        result.writeVarint(written.size());
+        result.write(nodes);
+        return result.toByteArray();
+    }
+    /**
+    * Decodes a function from its binary form. Subtrees that were written once are shared by the decoded tree.
+    *
+    * @param bytes - the bytes of the encoded function
+    *
+    * @return the decoded function
+    */
+    public static Function decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+    /**
+    * Decodes a function from the buffer, starting at its position. The position is moved past the encoded function.
+    *
+    * @param buffer - the buffer holding the encoded function
+    *
+    * @return the decoded function
+    */
+    public static Function decode(ByteBuffer buffer) {
+        ByteBuffer in = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        Function[] nodes = new Function[readCount(in)];
+        for (int id = 0; id < nodes.length; id++) {
+            int tag = readVarint(in);
+            // Builds the node from the tag and the operands written before it.
+            switch (tag) {
+                case VARIABLE:
+                    nodes[id] = new Variable();
+                    break;
+                case INDEXED_VARIABLE:
+                    int index = readVarint(in);
+                    nodes[id] = new IndexedVariable(index, readString(in));
+                    break;
+                case NUMBER:
+                    nodes[id] = new Number(in.getDouble());
+                    break;
+                case LOG:
+                    nodes[id] = new Log(nodes[operand(in, id)]);
+                    break;
+                case POLYNOMIAL:
+                    Function operand = nodes[operand(in, id)];
+                    nodes[id] = new Polynomial(operand, in.getDouble());
+                    break;
+                default:
+                    Operator operator = operator(tag);
+                    Function left = nodes[operand(in, id)];
+                    nodes[id] = new BinaryOp(operator, left, nodes[operand(in, id)]);
+                    break;
+            }
+        }
+        buffer.position(buffer.position() + in.position());
+        return nodes[nodes.length - 1];
+    }
+    /**
+    * Evaluates an encoded function at the given argument without decoding it into a tree.
+    *
+    * @param buffer - the buffer holding the encoded function. Its position and limit are not changed.
+    * @param offset - the index of the first byte of the encoded function
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public static double value(ByteBuffer buffer, int offset, double x) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.position(offset);
+        double[] values = new double[readCount(in)];
+        for (int id = 0; id < values.length; id++) {
+            int tag = readVarint(in);
+            // Evaluates the node from the values of the operands written before it.
+            switch (tag) {
+                case VARIABLE:
+                    values[id] = x;
+                    break;
+                case INDEXED_VARIABLE:
+                    readVarint(in);
+                    int length = readVarint(in);
+                    in.position(in.position() + length);
+                    values[id] = x;
+                    break;
+                case NUMBER:
+                    values[id] = in.getDouble();
+                    break;
+                case LOG:
+                    values[id] = Math.log(values[operand(in, id)]);
+                    break;
+                case POLYNOMIAL:
+                    double base = values[operand(in, id)];
+                    values[id] = Polynomial.pow(base, in.getDouble());
+                    break;
+                default:
+                    Operator operator = operator(tag);
+                    double left = values[operand(in, id)];
+                    values[id] = BinaryOp.apply(operator, left, values[operand(in, id)]);
+                    break;
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    /**
+     * Writes the value as an unsigned varint of seven bits per byte, low bits first.
+     */
+    static void writeVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned varint of at most 64 bits.
+     */
+    static long readLongVarint(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        long result = readLongVarint(buffer);
+        if (result > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Varint out of range: " + result);
+        }
+        return (int) result;
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+        int count = readVarint(buffer);
+        if (count == 0) {
+            throw new IllegalArgumentException("Encoded function has no nodes");
+        }
+        return count;
+    }
+
+    /**
+     * Reads a string written as its varint length in bytes and its UTF-8 bytes.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarint(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a back-reference and returns the id of the node it refers to.
+     */
+    private static int operand(ByteBuffer buffer, int id) {
+        int distance = readVarint(buffer);
+        if (distance <= 0 || distance > id) {
+            throw new IllegalArgumentException("Invalid operand reference " + distance + " in node " + id);
+        }
+        return id - distance;
+    }
+
+    private static Operator operator(int tag) {
+        Operator[] operators = Operator.values();
+        if (tag < BINARY_OP || tag >= BINARY_OP + operators.length) {
+            throw new IllegalArgumentException("Unknown node tag: " + tag);
+        }
+        return operators[tag - BINARY_OP];
+    }
+
+    /**
+     * Identifies a written node by its tag, the ids of its operands, or -1 where it has none, the
+     * bits of its constant or its index, and its name.
+     */
+    private static final class Key {
+        private final int tag;
+        private final int left;
+        private final int right;
+        private final long bits;
+        private final String name;
+
+        Key(int tag, int left, int right, long bits) {
+            this(tag, left, right, bits, null);
+        }
+
+        Key(int tag, int left, int right, long bits, String name) {
+            this.tag = tag;
+            this.left = left;
+            this.right = right;
+            this.bits = bits;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return tag == other.tag && left == other.left && right == other.right && bits == other.bits
+                    && Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * (31 * tag + left) + right) + Long.hashCode(bits)) + Objects.hashCode(name);
+        }
+    }
+
+    /**
+     * A growable byte array with varint, little-endian double and string writers.
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeDouble(double value) {
+            ensure(Double.BYTES);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int i = 0; i < Double.BYTES; i++) {
+                bytes[size++] = (byte) (bits >>> 8 * i);
+            }
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        void write(Output other) {
+            ensure(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The FunctionCompiler class turns a Function tree into a hidden class whose value method evaluates
+ * the whole tree as one straight-line arithmetic body, so the JIT sees no virtual calls between nodes.
+ */
+public final class FunctionCompiler {
+    private static final int CLASS_VERSION = 61;
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int DLOAD_1 = 0x27;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int AALOAD = 0x32;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+
+    private static final MethodType CONSTRUCTOR_TYPE =
+            MethodType.methodType(void.class, Function.class, Function[].class);
+
+    private FunctionCompiler() {
+    }
+    /**
+    * Compiles the given function into a generated class. Nodes of unknown Function types are kept as they are and called through their value method.
+    *
+    * @param function - the tree to compile. Must not be null.
+    *
+    * @return a Function that evaluates to the same values as the given tree
+    */
+    public static CompiledFunction compile(Function function) {
+        // Returns the function itself if it is already compiled.
+        if (function instanceof CompiledFunction) {
+            return (CompiledFunction) function;
+        }
+        Generator generator = new Generator();
+        byte[] bytes = generator.generate(function);
+        Function[] leaves = generator.leaves.toArray(new Function[0]);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR_TYPE);
+            return (CompiledFunction) constructor.invoke(function, leaves);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to define compiled function for " + function, e);
+        }
+    }
+
+    /**
+     * Writes the class file of one compiled function.
+     */
+    private static final class Generator {
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<Object, Integer> constants = new HashMap<>();
+        private int poolCount = 1;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Function> leaves = new ArrayList<>();
+
+        byte[] generate(Function function) {
+            try {
+                int thisClass = classConstant("CompiledFunctionImpl");
+                int superClass = classConstant("CompiledFunction");
+                int codeName = utf8("Code");
+                int initName = utf8("<init>");
+                int initType = utf8("(LFunction;[LFunction;)V");
+                int superInit = memberConstant(10, "CompiledFunction", "<init>", "(LFunction;[LFunction;)V");
+                int valueName = utf8("value");
+                int valueType = utf8("(D)D");
+
+                int maxStack = emit(function);
+                code.write(DRETURN);
+                byte[] valueCode = code.toByteArray();
+                // Checks that the method body fits in a single method.
+                if (valueCode.length > MAX_CODE_LENGTH || maxStack > 0xffff || poolCount > 0xffff) {
+                    throw new IllegalArgumentException("Function is too large to compile");
+                }
+
+                ByteArrayOutputStream initCode = new ByteArrayOutputStream();
+                initCode.write(ALOAD_0);
+                initCode.write(ALOAD_1);
+                initCode.write(ALOAD_2);
+                initCode.write(INVOKESPECIAL);
+                initCode.write(superInit >> 8);
+                initCode.write(superInit);
+                initCode.write(RETURN);
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(CLASS_VERSION);
+                out.writeShort(poolCount);
+                pool.flush();
+                poolBytes.writeTo(out);
+                out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(2);
+                writeMethod(out, initName, initType, codeName, 3, 3, initCode.toByteArray());
+                writeMethod(out, valueName, valueType, codeName, maxStack, 3, valueCode);
+                out.writeShort(0);
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Emits the code that leaves the value of the node on the operand stack and returns the
+         * number of stack slots the code needs.
+         */
+        private int emit(Function function) throws IOException {
+            // Emits the code for the node type.
+            if (function instanceof Variable) {
+                code.write(DLOAD_1);
+                return 2;
+            }
+            if (function instanceof Number) {
+                emitDouble(function.value(0));
+                return 2;
+            }
+            if (function instanceof BinaryOp) {
+                BinaryOp binaryOp = (BinaryOp) function;
+                int left = emit(binaryOp.getLeftOperand());
+                int right = emit(binaryOp.getRightOperand());
+                code.write(opcode(binaryOp.getOperator()));
+                return Math.max(left, 2 + right);
+            }
+            if (function instanceof Log) {
+                int operand = emit(((Log) function).getOperand());
+                emitInvokeStatic("log", "(D)D");
+                return Math.max(operand, 2);
+            }
+            if (function instanceof Polynomial) {
+                Polynomial polynomial = (Polynomial) function;
+                int operand = emit(polynomial.getOperand());
+                emitDouble(polynomial.getPower());
+                writeIndex(INVOKESTATIC, memberConstant(10, "Polynomial", "pow", "(DD)D"));
+                return Math.max(operand, 4);
+            }
+            return emitLeaf(function);
+        }
+
+        private int emitLeaf(Function function) throws IOException {
+            int index = leaves.size();
+            leaves.add(function);
+            code.write(ALOAD_0);
+            writeIndex(GETFIELD, memberConstant(9, "CompiledFunction", "leaves", "[LFunction;"));
+            // Pushes the leaf index with the shortest instruction.
+            if (index <= Byte.MAX_VALUE) {
+                code.write(BIPUSH);
+                code.write(index);
+            } else if (index <= Short.MAX_VALUE) {
+                code.write(SIPUSH);
+                code.write(index >> 8);
+                code.write(index);
+            } else {
+                writeIndex(LDC_W, integerConstant(index));
+            }
+            code.write(AALOAD);
+            code.write(DLOAD_1);
+            writeIndex(INVOKEINTERFACE, memberConstant(11, "Function", "value", "(D)D"));
+            code.write(3);
+            code.write(0);
+            return 4;
+        }
+
+        private void emitDouble(double value) throws IOException {
+            // Uses the constant instructions for +0.0 and 1.0.
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                code.write(DCONST_0);
+            } else if (value == 1.0) {
+                code.write(DCONST_1);
+            } else {
+                writeIndex(LDC2_W, doubleConstant(value));
+            }
+        }
+
+        private void emitInvokeStatic(String name, String descriptor) throws IOException {
+            writeIndex(INVOKESTATIC, memberConstant(10, "java/lang/Math", name, descriptor));
+        }
+
+        private void writeIndex(int opcode, int index) {
+            code.write(opcode);
+            code.write(index >> 8);
+            code.write(index);
+        }
+
+        private static int opcode(Operator operator) {
+            // Returns the instruction of the operator.
+            switch (operator) {
+                case ADD:
+                    return DADD;
+                case SUBTRACT:
+                    return DSUB;
+                case MULTIPLY:
+                    return DMUL;
+                case DIVIDE:
+                    return DDIV;
+                default:
+                    throw new UnsupportedOperationException("Unsupported operator: " + operator);
+            }
+        }
+
+        private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeName,
+                int maxStack, int maxLocals, byte[] body) throws IOException {
+            out.writeShort(ACC_PUBLIC);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+        private int utf8(String value) throws IOException {
+            Integer index = constants.get(value);
+            // Adds the string to the constant pool if it is not there yet.
+            if (index == null) {
+                pool.writeByte(1);
+                pool.writeUTF(value);
+                index = poolCount++;
+                constants.put(value, index);
+            }
+            return index;
+        }
+
+        private int classConstant(String name) throws IOException {
+            String key = "Class " + name;
+            Integer index = constants.get(key);
+            // Adds the class to the constant pool if it is not there yet.
+            if (index == null) {
+                int nameIndex = utf8(name);
+                pool.writeByte(7);
+                pool.writeShort(nameIndex);
+                index = poolCount++;
+                constants.put(key, index);
+            }
+            return index;
+        }
+
+        private int memberConstant(int tag, String owner, String name, String descriptor) throws IOException {
+            String key = tag + " " + owner + "." + name + descriptor;
+            Integer index = constants.get(key);
+            // Adds the member reference to the constant pool if it is not there yet.
+            if (index == null) {
+                int ownerIndex = classConstant(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                pool.writeByte(12);
+                pool.writeShort(nameIndex);
+                pool.writeShort(descriptorIndex);
+                int nameAndType = poolCount++;
+                pool.writeByte(tag);
+                pool.writeShort(ownerIndex);
+                pool.writeShort(nameAndType);
+                index = poolCount++;
+                constants.put(key, index);
+            }
+            return index;
+        }
+
+        private int doubleConstant(double value) throws IOException {
+            Long key = Double.doubleToRawLongBits(value);
+            Integer index = constants.get(key);
+            // Adds the double to the constant pool; it takes two entries.
+            if (index == null) {
+                pool.writeByte(6);
+                pool.writeLong(key);
+                index = poolCount;
+                poolCount += 2;
+                constants.put(key, index);
+            }
+            return index;
+        }
+
+        private int integerConstant(int value) throws IOException {
+            Integer key = value;
+            Integer index = constants.get(key);
+            // Adds the integer to the constant pool if it is not there yet.
+            if (index == null) {
+                pool.writeByte(3);
+                pool.writeInt(value);
+                index = poolCount++;
+                constants.put(key, index);
+            }
+            return index;
+        }
+    }
+}
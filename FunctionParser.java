@@ -0,0 +1,445 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The FunctionParser class reads the text produced by toString back into Function trees. The
+ * grammar is the one of the printers: numbers as printed by Double.toString, the variable x, the
+ * indexed variables x0, x1 and so on, binary operators surrounded by spaces, postfix powers " ^p"
+ * and logarithms "Exp[...]". Indexed variables are read with their default names, so one printed
+ * with another name cannot be read back. The tokenizer reads the characters in place, so no
+ * substrings are allocated except for the rare numbers that need Double.parseDouble.
+ *
+ * The printers do not parenthesize a chain of the same operator, so "a - b - c" may come from
+ * (a - b) - c or from a - (b - c). Such chains are read as left-nested, except where the
+ * placement of parentheses shows otherwise. Parsing therefore always round-trips the text, but a
+ * chain of one operator may come back nested the other way.
+ */
+public final class FunctionParser {
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int MAX_FAST_EXPONENT = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_EXPONENT + 1];
+    private static final int BUFFER_SIZE = 8192;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_FAST_EXPONENT; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final CharSequence text;
+    private final int end;
+    private int position;
+    private Frame[] frames = new Frame[16];
+    private int depth;
+    private FunctionParser(CharSequence text, int from, int to) {
+        this.text = text;
+        this.position = from;
+        this.end = to;
+    }
+    /**
+    * Parses the text of a function as printed by toString.
+    *
+    * @param text - the text to parse
+    *
+    * @return the function described by the text
+    */
+    public static Function parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+    /**
+    * Parses the characters from index from to index to (exclusive) of the text. Leading and trailing whitespace is ignored.
+    *
+    * @param text - the text to parse
+    * @param from - the index of the first character
+    * @param to - the index after the last character
+    *
+    * @return the function described by the characters
+    */
+    public static Function parse(CharSequence text, int from, int to) {
+        FunctionParser parser = new FunctionParser(text, from, to);
+        Function result = parser.expression();
+        parser.skipWhitespace();
+        // Checks that the whole text was consumed.
+        if (parser.position < to) {
+            throw parser.error("Unexpected character");
+        }
+        return result;
+    }
+    /**
+    * Parses every non-blank line of the reader as a function and passes it to the consumer. The input is read through a fixed buffer, so files of any size can be parsed without loading them into memory.
+    *
+    * @param reader - the reader supplying newline-delimited expressions
+    * @param consumer - the consumer receiving the functions in input order
+    *
+    * @return the number of functions parsed
+    */
+    public static long parseLines(Reader reader, Consumer<? super Function> consumer) {
+        char[] buffer = new char[BUFFER_SIZE];
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        int start = 0;
+        int limit = 0;
+        long count = 0;
+        try {
+            while (true) {
+                // Moves the unfinished line to the front and grows the buffer if it fills the buffer.
+                if (limit == buffer.length) {
+                    if (start == 0) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        chars = CharBuffer.wrap(buffer);
+                    } else {
+                        System.arraycopy(buffer, start, buffer, 0, limit - start);
+                        limit -= start;
+                        start = 0;
+                    }
+                }
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    break;
+                }
+                int scanned = limit;
+                limit += read;
+                for (int i = scanned; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        count += parseLine(chars, start, i, consumer);
+                        start = i + 1;
+                    }
+                }
+            }
+            return count + parseLine(chars, start, limit, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int parseLine(CharSequence text, int from, int to, Consumer<? super Function> consumer) {
+        for (int i = from; i < to; i++) {
+            // Parses the line if it has a non-whitespace character.
+            if (!Character.isWhitespace(text.charAt(i))) {
+                consumer.accept(parse(text, from, to));
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reads an expression up to the end of the text or the first character that cannot continue
+     * it. The grammar nests, but the state is kept in a stack of frames instead of the thread
+     * stack, so texts of any depth can be read. An expression frame reads an operand followed by
+     * any number of operators and right operands, nesting to the left; one is opened for the whole
+     * text, for every parenthesis and for every logarithm. An operand frame reads the right operand
+     * of an operator. The printers leave only ADD operands unparenthesized on the right, so a run
+     * of ADD after another operator belongs to the operand, and they parenthesize an ADD only on
+     * the left, so an ADD in parentheses followed by the same operator starts a right-nested chain.
+     */
+    private Function expression() {
+        push(new Frame((char) 0));
+        while (true) {
+            skipWhitespace();
+            if (position == end) {
+                throw error("Unexpected end of input");
+            }
+            char c = text.charAt(position);
+            // Opens a frame for a parenthesis or a logarithm, or reads a leaf operand.
+            if (c == '(' || c == 'E' && matches("Exp[")) {
+                position += c == '(' ? 1 : 4;
+                push(new Frame(c == '(' ? ')' : ']'));
+                continue;
+            }
+            Function leaf;
+            if (c == 'x') {
+                position++;
+                leaf = variable();
+            } else {
+                leaf = new Number(number());
+            }
+            Function value = powers(leaf);
+            boolean parenthesized = false;
+            boolean right = false;
+            Operator following = null;
+            // Passes the value to the frame on top until a frame needs another operand. A value is
+            // either an operand, or with right set the result of an operand frame and the operator
+            // that followed it.
+            while (true) {
+                Frame frame = frames[depth - 1];
+                Operator next;
+                if (frame.expression) {
+                    frame.result = right ? new BinaryOp(frame.operator, frame.result, value) : value;
+                    next = right ? following : operator();
+                    if (next != null) {
+                        frame.operator = next;
+                        push(new Frame(next));
+                        break;
+                    }
+                } else if (right) {
+                    frame.result = new BinaryOp(frame.operator, frame.result, value);
+                    next = following;
+                    if (next == frame.operator) {
+                        push(new Frame(next));
+                        break;
+                    }
+                } else if (frame.result == null) {
+                    frame.result = value;
+                    next = operator();
+                    if (frame.operator != Operator.ADD && next == Operator.ADD) {
+                        break;
+                    }
+                    if (next == frame.operator && parenthesized && value instanceof BinaryOp
+                            && ((BinaryOp) value).getOperator() == Operator.ADD) {
+                        push(new Frame(next));
+                        break;
+                    }
+                } else {
+                    frame.result = new BinaryOp(Operator.ADD, frame.result, value);
+                    next = operator();
+                    if (next == Operator.ADD) {
+                        break;
+                    }
+                }
+                // Completes the frame and passes its result to the frame below.
+                frames[--depth] = null;
+                if (!frame.expression) {
+                    value = frame.result;
+                    right = true;
+                    following = next;
+                    continue;
+                }
+                if (frame.closing == 0) {
+                    return frame.result;
+                }
+                expect(frame.closing);
+                value = powers(frame.closing == ']' ? new Log(frame.result) : frame.result);
+                parenthesized = frame.closing == ')';
+                right = false;
+            }
+        }
+    }
+
+    /**
+     * Reads any number of powers after an operand.
+     */
+    private Function powers(Function operand) {
+        Function result = operand;
+        while (true) {
+            int mark = position;
+            skipWhitespace();
+            // Reads a power, or leaves the characters for the caller.
+            if (position < end && text.charAt(position) == '^') {
+                position++;
+                skipWhitespace();
+                result = new Polynomial(result, number());
+            } else {
+                position = mark;
+                return result;
+            }
+        }
+    }
+
+    private void push(Frame frame) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        frames[depth++] = frame;
+    }
+
+    /**
+     * Reads a binary operator surrounded by whitespace, or returns null and keeps the position if
+     * there is none.
+     */
+    private Operator operator() {
+        int mark = position;
+        skipWhitespace();
+        if (position < end) {
+            Operator result = null;
+            // Returns the operator of the character.
+            switch (text.charAt(position)) {
+                case '+':
+                    result = Operator.ADD;
+                    break;
+                case '-':
+                    result = Operator.SUBTRACT;
+                    break;
+                case '*':
+                    result = Operator.MULTIPLY;
+                    break;
+                case '/':
+                    result = Operator.DIVIDE;
+                    break;
+                default:
+                    break;
+            }
+            if (result != null) {
+                position++;
+                return result;
+            }
+        }
+        position = mark;
+        return null;
+    }
+
+    /**
+     * Reads the digits after an x as the index of an IndexedVariable with its default name, or
+     * returns the Variable x if there are none.
+     */
+    private Function variable() {
+        if (position == end || text.charAt(position) < '0' || text.charAt(position) > '9') {
+            return new Variable();
+        }
+        int start = position;
+        long index = 0;
+        while (position < end && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+            index = index * 10 + (text.charAt(position) - '0');
+            if (index > Integer.MAX_VALUE) {
+                position = start;
+                throw error("Variable index out of range");
+            }
+            position++;
+        }
+        return new IndexedVariable((int) index);
+    }
+
+    /**
+     * Reads a number in the format of Double.toString. Numbers with at most 15 significant digits
+     * and a small exponent are converted exactly with one multiplication or division; the others
+     * are passed to Double.parseDouble.
+     */
+    private double number() {
+        int start = position;
+        boolean negative = false;
+        if (position < end && text.charAt(position) == '-') {
+            negative = true;
+            position++;
+        }
+        if (matches("Infinity")) {
+            position += 8;
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        if (!negative && matches("NaN")) {
+            position += 3;
+            return Double.NaN;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        while (position < end) {
+            char c = text.charAt(position);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                // Keeps the significant digits that fit and counts the dropped ones in the scale.
+                if (digits < 18) {
+                    if (mantissa != 0 || c != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (seenPoint) {
+                        scale--;
+                    }
+                } else if (!seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+        if (!seenDigit) {
+            position = start;
+            throw error("Expected a number");
+        }
+        int exponent = 0;
+        if (position < end && (text.charAt(position) == 'E' || text.charAt(position) == 'e')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+                negativeExponent = text.charAt(position) == '-';
+                position++;
+            }
+            int exponentStart = position;
+            while (position < end && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+                exponent = Math.min(exponent * 10 + (text.charAt(position) - '0'), 100000);
+                position++;
+            }
+            if (position == exponentStart) {
+                throw error("Expected an exponent");
+            }
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+        int power = scale + exponent;
+        double result;
+        // Converts exactly when the mantissa and the power of ten are both exact doubles.
+        if (digits <= MAX_FAST_DIGITS && power >= -MAX_FAST_EXPONENT && power <= MAX_FAST_EXPONENT) {
+            result = power < 0 ? mantissa / POWERS_OF_TEN[-power] : mantissa * POWERS_OF_TEN[power];
+        } else {
+            result = Math.abs(Double.parseDouble(text.subSequence(start, position).toString()));
+        }
+        return negative ? -result : result;
+    }
+
+    private boolean matches(String token) {
+        if (end - position < token.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (text.charAt(position + i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(char c) {
+        skipWhitespace();
+        if (position == end || text.charAt(position) != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        String found = position < end ? "'" + text.charAt(position) + "'" : "end of input";
+        return new IllegalArgumentException(message + " at index " + position + ", found " + found);
+    }
+
+    /**
+     * An expression or right operand that is being read, with the part read so far.
+     */
+    private static final class Frame {
+        final boolean expression;
+        final char closing;
+        Operator operator;
+        Function result;
+
+        /**
+         * Creates an expression frame ended by the given character, or by the end of the text if
+         * it is 0.
+         */
+        Frame(char closing) {
+            this.expression = true;
+            this.closing = closing;
+        }
+
+        /**
+         * Creates an operand frame for the right operand of the operator.
+         */
+        Frame(Operator operator) {
+            this.expression = false;
+            this.closing = 0;
+            this.operator = operator;
+        }
+    }
+}
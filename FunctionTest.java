@@ -1,3 +1,18 @@
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -58,4 +73,687 @@ public class FunctionTest {
         assertTrue(f.equals(new Log(new Variable())));
         assertFalse(f.equals(new Log(new Number(2.0))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompiledFunction() {
+        Function f = new BinaryOp(Operator.DIVIDE,
+                new BinaryOp(Operator.ADD, new Polynomial(new Variable(), 3.0), new Log(new Variable())),
+                new BinaryOp(Operator.SUBTRACT, new Number(2.0), new BinaryOp(Operator.MULTIPLY, new Variable(), new Number(0.5))));
+        Function compiled = FunctionCompiler.compile(f);
+        Function derivative = f.derivative();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextDouble() * 10.0;
+            assertEquals(f.value(x), compiled.value(x), 0.0);
+            assertEquals(derivative.value(x), compiled.derivative().value(x), 0.0);
+        }
+        assertEquals(f.toString(), compiled.toString());
+    }
+
+    @Test
+    public void testBatchValue() {
+        Function f = new BinaryOp(Operator.SUBTRACT,
+                new BinaryOp(Operator.MULTIPLY, new Log(new Variable()), new Polynomial(new Variable(), 2.5)),
+                new BinaryOp(Operator.DIVIDE, new Number(1.0), new Variable()));
+        double[] xs = new double[3000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = 0.01 * i;
+        }
+        double[] out = new double[xs.length];
+        f.value(xs, out);
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(f.value(xs[i]), out[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testSimplifier() {
+        Variable x = new Variable();
+        assertEquals(new Number(1), Simplifier.simplify(new BinaryOp(Operator.ADD, x, new Number(2.0)).derivative()));
+        assertEquals(new Number(3.0), Simplifier.simplify(new BinaryOp(Operator.MULTIPLY, x, new Number(3.0)).derivative()));
+        assertEquals(new BinaryOp(Operator.MULTIPLY, new Number(2.0), x), Simplifier.simplify(new Polynomial(x, 2.0).derivative()));
+        assertEquals(new Polynomial(x, 6.0), Simplifier.simplify(new Polynomial(new Polynomial(x, 2.0), 3.0)));
+        assertEquals(new BinaryOp(Operator.MULTIPLY, new Number(5.0), x),
+                Simplifier.simplify(new BinaryOp(Operator.ADD, new BinaryOp(Operator.MULTIPLY, new Number(2.0), x),
+                        new BinaryOp(Operator.MULTIPLY, x, new Number(3.0)))));
+
+        Function f = new BinaryOp(Operator.MULTIPLY, new Polynomial(x, 4.0), new Log(x));
+        SimplifyingFunction third = (SimplifyingFunction) new SimplifyingFunction(f).derivative().derivative().derivative();
+        Function plain = f.derivative().derivative().derivative();
+        assertTrue(third.getNodesAfter() < Simplifier.nodeCount(plain));
+        for (double v = 0.5; v < 5.0; v += 0.25) {
+            assertEquals(plain.value(v), third.value(v), 1e-9 * Math.abs(plain.value(v)));
+        }
+    }
+
+    @Test
+    public void testExpressionFactory() {
+        Function f = new BinaryOp(Operator.DIVIDE, new BinaryOp(Operator.MULTIPLY, new Variable(), new Log(new Variable())),
+                new BinaryOp(Operator.ADD, new Variable(), new Number(1.0)));
+        assertEquals(f.hashCode(), new BinaryOp(Operator.DIVIDE, new BinaryOp(Operator.MULTIPLY, new Variable(), new Log(new Variable())),
+                new BinaryOp(Operator.ADD, new Variable(), new Number(1.0))).hashCode());
+        assertEquals(new Number(0.0).hashCode(), new Number(-0.0).hashCode());
+
+        ExpressionFactory factory = new ExpressionFactory();
+        assertSame(factory.intern(f), factory.binaryOp(Operator.DIVIDE,
+                factory.binaryOp(Operator.MULTIPLY, factory.variable(), factory.log(factory.variable())),
+                factory.binaryOp(Operator.ADD, factory.variable(), factory.number(1.0))));
+        Function plain = f;
+        Function shared = f;
+        for (int i = 0; i < 4; i++) {
+            plain = plain.derivative();
+            shared = factory.derivative(shared);
+        }
+        assertEquals(plain, shared);
+        DagEvaluator evaluator = new DagEvaluator(shared);
+        assertTrue(evaluator.size() < Simplifier.nodeCount(plain));
+        for (double x = 0.5; x < 4.0; x += 0.5) {
+            assertEquals(plain.value(x), evaluator.value(x), 0.0);
+        }
+    }
+
+    @Test
+    public void testForwardMode() {
+        Function f = new BinaryOp(Operator.DIVIDE,
+                new BinaryOp(Operator.MULTIPLY, new Polynomial(new Variable(), 3.0), new Log(new Variable())),
+                new BinaryOp(Operator.ADD, new Variable(), new Number(1.0)));
+        Function derivative = f;
+        for (double x = 0.5; x < 4.0; x += 0.5) {
+            Dual dual = f.valueAndDerivative(x);
+            assertEquals(f.value(x), dual.getValue(), 0.0);
+            assertEquals(f.derivative().value(x), dual.getDerivative(), 1e-12 * Math.abs(dual.getDerivative()));
+        }
+        double[] series = ForwardMode.derivatives(f, 1.5, 4);
+        for (int k = 0; k <= 4; k++) {
+            assertEquals(derivative.value(1.5), series[k], 1e-9 * Math.abs(series[k]));
+            derivative = derivative.derivative();
+        }
+        assertEquals(2.0, ForwardMode.derivatives(new Polynomial(new Variable(), 2.0), 0.0, 3)[2], 0.0);
+    }
+
+    @Test
+    public void testIterativeEngine() {
+        Function f = new BinaryOp(Operator.SUBTRACT, new Log(new BinaryOp(Operator.ADD, new Variable(), new Number(1.0))),
+                new Polynomial(new BinaryOp(Operator.MULTIPLY, new Variable(), new BinaryOp(Operator.DIVIDE, new Variable(), new Number(2.0))), 2.0));
+        assertEquals("Exp[(x + 1.0)] - (x * (x / 2.0)) ^2.0", f.toString());
+        assertEquals(f.value(1.5), IterativeEngine.value(f, 1.5), 0.0);
+        assertEquals(f.derivative(), IterativeEngine.derivative(f));
+
+        Function deep = new Variable();
+        for (int i = 0; i < 100000; i++) {
+            deep = new BinaryOp(i % 2 == 0 ? Operator.ADD : Operator.MULTIPLY, deep, new Number(1.0));
+        }
+        assertEquals(50000.0 + 2.0, IterativeEngine.value(deep, 2.0), 0.0);
+        assertEquals(1.0, IterativeEngine.value(IterativeEngine.derivative(deep), 2.0), 0.0);
+        String text = deep.toString();
+        assertTrue(text.startsWith("((((") && text.endsWith(" + 1.0) * 1.0"));
+        assertEquals(1 + 100000 * " + 1.0".length() + 2 * 99999, text.length());
+    }
+
+    @Test
+    public void testTape() {
+        Function f = new BinaryOp(Operator.DIVIDE,
+                new BinaryOp(Operator.MULTIPLY, new Polynomial(new Variable(), 3.0), new Log(new Variable())),
+                new BinaryOp(Operator.ADD, new Polynomial(new Variable(), 3.0), new Number(1.0)));
+        Tape tape = Tape.of(f);
+        assertEquals(f, tape.toFunction());
+        assertEquals(f.toString(), tape.toString());
+        assertEquals(f.derivative(), ((Tape) tape.derivative()).toFunction());
+        assertTrue(tape.size() < Simplifier.nodeCount(f));
+        for (double x = 0.25; x < 4.0; x += 0.25) {
+            assertEquals(f.value(x), tape.value(x), 0.0);
+            assertEquals(f.derivative().value(x), tape.derivative().value(x), 0.0);
+        }
+        Function nested = new BinaryOp(Operator.SUBTRACT, tape, new BinaryOp(Operator.MULTIPLY, tape, new Log(new Variable())));
+        Tape outer = Tape.of(nested);
+        for (double x = 0.25; x < 4.0; x += 0.25) {
+            assertEquals(f.value(x) - f.value(x) * Math.log(x), outer.value(x), 0.0);
+        }
+    }
+
+    @Test
+    public void testDensePolynomial() {
+        Function x = new Variable();
+        Function f = new BinaryOp(Operator.SUBTRACT,
+                new BinaryOp(Operator.ADD,
+                        new BinaryOp(Operator.MULTIPLY, new Number(3.0), new Polynomial(x, 4.0)),
+                        new BinaryOp(Operator.MULTIPLY, new Number(2.0), new Polynomial(x, 2.0))),
+                new Number(7.0));
+        DensePolynomial dense = DensePolynomial.fromFunction(f);
+        assertEquals(new DensePolynomial(-7.0, 0.0, 2.0, 0.0, 3.0), dense);
+        assertEquals(new DensePolynomial(0.0, 4.0, 0.0, 12.0), dense.derivative());
+        assertEquals(new DensePolynomial(-1.0, 0.0, 1.0), new DensePolynomial(-1.0, 1.0).multiply(new DensePolynomial(1.0, 1.0)));
+        assertEquals(new DensePolynomial(0.0, 2.0), new DensePolynomial(1.0, 1.0).add(new DensePolynomial(-1.0, 1.0)));
+        for (double v = -2.0; v <= 2.0; v += 0.25) {
+            assertEquals(f.value(v), dense.value(v), 1e-12);
+        }
+        assertEquals(null, DensePolynomial.fromFunction(new Log(x)));
+        assertTrue(DensePolynomial.rewrite(new Log(f)) instanceof Log);
+        assertEquals(9.0, new Polynomial(x, 2.0).value(3.0), 0.0);
+        assertEquals(0.125, new Polynomial(x, -3.0).value(2.0), 0.0);
+        assertEquals(new DensePolynomial(1.0), DensePolynomial.rewrite(new Polynomial(new Number(1.0), 1e12)));
+        Function constantPower = new Polynomial(new BinaryOp(Operator.ADD, new Number(1.0), new Number(1e-9)), 1e10);
+        assertEquals(constantPower.value(0.0), DensePolynomial.rewrite(constantPower).value(0.0), 0.0);
+    }
+
+    @Test
+    public void testCachingFunction() {
+        Function f = new BinaryOp(Operator.ADD, new Log(new Variable()), new Polynomial(new Variable(), 0.5));
+        EvaluationCache cache = new EvaluationCache(64);
+        Function cached = new CachingFunction(f, cache);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 1; i <= 10; i++) {
+                assertEquals(f.value(i), cached.value(i), 0.0);
+            }
+        }
+        assertEquals(20, cache.getHits());
+        assertEquals(30, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(f.value(i * 0.5), cached.value(i * 0.5), 0.0);
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(f.derivative().value(2.0), cached.derivative().value(2.0), 0.0);
+    }
+
+    @Test
+    public void testSampler() throws Exception {
+        Function f = new BinaryOp(Operator.MULTIPLY, new Variable(), new Log(new Variable()));
+        Function df = f.derivative();
+        int n = 100000;
+        double[] values = new double[n];
+        double[] derivatives = new double[n];
+        Sampler.sample(f, 1.0, 0.001, values, derivatives);
+        for (int i = 0; i < n; i += 997) {
+            double x = 1.0 + i * 0.001;
+            assertEquals(f.value(x), values[i], 0.0);
+            assertEquals(df.value(x), derivatives[i], 0.0);
+        }
+        assertEquals(11, Sampler.count(0, 1, 0.1));
+        assertArrayEquals(values, Sampler.sample(f, 1.0, 1.0 + (n - 1) * 0.001, 0.001), 0.0);
+        Path file = Files.createTempFile("sampler", ".bin");
+        try {
+            Sampler.sample(f, 1.0, 0.001, n, file, true);
+            DoubleBuffer table = ByteBuffer.wrap(Files.readAllBytes(file))
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            assertEquals(2 * n, table.remaining());
+            for (int i = 0; i < n; i += 997) {
+                assertEquals(values[i], table.get(i), 0.0);
+                assertEquals(derivatives[i], table.get(n + i), 0.0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFunctionParser() {
+        Function f = new BinaryOp(Operator.DIVIDE,
+                new BinaryOp(Operator.ADD, new Polynomial(new Variable(), 3.0), new Log(new Variable())),
+                new BinaryOp(Operator.SUBTRACT, new Number(-2.0), new BinaryOp(Operator.MULTIPLY, new Variable(), new Number(1.0E-5))));
+        Function d = f.derivative();
+        for (Function expected : new Function[] { f, d, d.derivative() }) {
+            String text = expected.toString();
+            Function parsed = FunctionParser.parse(text);
+            assertEquals(text, parsed.toString());
+            assertEquals(expected.value(1.5), parsed.value(1.5), 1e-9 * Math.abs(expected.value(1.5)));
+        }
+        assertEquals(f, FunctionParser.parse(f.toString()));
+        assertEquals(new BinaryOp(Operator.SUBTRACT, new BinaryOp(Operator.SUBTRACT, new Variable(), new Number(1.0)), new Number(2.0)),
+                FunctionParser.parse("x - 1.0 - 2.0"));
+        for (String text : new String[] { "x * (x + 1.0) * x", "x * x + 1.0 * x", "x - 3.5 + x - x" }) {
+            assertEquals(text, FunctionParser.parse(text).toString());
+        }
+        assertEquals(new Polynomial(new Log(new BinaryOp(Operator.ADD, new Variable(), new Number(0.1))), -0.5),
+                FunctionParser.parse(" Exp[(x + 0.1)] ^-0.5 "));
+        List<Function> parsed = new ArrayList<>();
+        assertEquals(3, FunctionParser.parseLines(new StringReader("x\n\n1.0E300 * x\r\nNaN"), parsed::add));
+        assertEquals(new Variable(), parsed.get(0));
+        assertEquals(new BinaryOp(Operator.MULTIPLY, new Number(1.0E300), new Variable()), parsed.get(1));
+        assertTrue(Double.isNaN(parsed.get(2).value(0)));
+        try {
+            FunctionParser.parse("x +");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("index 3"));
+        }
+    }
+
+    @Test
+    public void testFunctionCodec() throws Exception {
+        Function shared = new Polynomial(new BinaryOp(Operator.ADD, new Variable(), new Number(0.5)), 2.5);
+        Function f = new BinaryOp(Operator.DIVIDE, new BinaryOp(Operator.SUBTRACT, shared, new Log(shared)),
+                new BinaryOp(Operator.MULTIPLY, new Number(-3.0), new Polynomial(new Variable(), 3.0)));
+        byte[] bytes = FunctionCodec.encode(f);
+        Function decoded = FunctionCodec.decode(bytes);
+        assertEquals(f, decoded);
+        assertEquals(f.toString(), decoded.toString());
+        assertEquals(f.value(1.5), FunctionCodec.value(ByteBuffer.wrap(bytes), 0, 1.5), 0.0);
+        assertArrayEquals(bytes, FunctionCodec.encode(decoded));
+        Function d = f.derivative().derivative();
+        assertTrue(FunctionCodec.encode(d).length < d.toString().length() / 4);
+        Path file = Files.createTempFile("store", ".bin");
+        try {
+            try (ExpressionStore store = ExpressionStore.open(file)) {
+                assertEquals(0, store.append(f));
+                assertEquals(1, store.append(d));
+                assertEquals(f.value(2.0), store.get(0).value(2.0), 0.0);
+            }
+            try (ExpressionStore store = ExpressionStore.open(file)) {
+                assertEquals(2, store.size());
+                assertEquals(d.value(2.0), store.get(1).value(2.0), 0.0);
+                assertEquals(d.toString(), store.get(1).toString());
+                assertEquals(f.derivative(), store.get(0).derivative());
+                assertEquals(2, store.append(new Variable()));
+                assertEquals(3.0, store.get(2).value(3.0), 0.0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRootFinder() {
+        RootFinder finder = new RootFinder();
+        Function f = new BinaryOp(Operator.SUBTRACT, new Polynomial(new Variable(), 2.0), new Number(2.0));
+        assertEquals(Math.sqrt(2), finder.solve(f, 0, 2).getX(), 1e-12);
+        assertEquals(-Math.sqrt(2), finder.solve(f, -1).getX(), 1e-12);
+        assertEquals(Root.Status.NO_SIGN_CHANGE, finder.solve(f, 2, 3).getStatus());
+        Function log = new BinaryOp(Operator.SUBTRACT, new Log(new Variable()), new Number(1.0));
+        assertEquals(Root.Status.NOT_FINITE, finder.solve(log, -1).getStatus());
+        Root root = finder.solve(log, 10);
+        assertTrue(root.isConverged());
+        assertEquals(Math.E, root.getX(), 1e-12);
+        double[] starts = new double[10000];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = -50 + 0.01 * i;
+        }
+        RootBatch batch = finder.solveAll(new BinaryOp(Operator.SUBTRACT, new Polynomial(new Variable(), 3.0), new Variable()), starts);
+        assertEquals(starts.length, batch.size());
+        assertEquals(starts.length, batch.count(Root.Status.CONVERGED) + batch.count(Root.Status.MAX_ITERATIONS)
+                + batch.count(Root.Status.NOT_FINITE));
+        assertTrue(batch.count(Root.Status.CONVERGED) > starts.length * 9 / 10);
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).isConverged()) {
+                assertEquals(0.0, batch.get(i).getValue(), 1e-9);
+            }
+        }
+        Function[] functions = new Function[1000];
+        for (int i = 0; i < functions.length; i++) {
+            functions[i] = new BinaryOp(Operator.SUBTRACT, new Variable(), new Number(i / 1000.0));
+        }
+        RootBatch bracketed = finder.solveAll(functions, -1, 1);
+        assertEquals(functions.length, bracketed.count(Root.Status.CONVERGED));
+        assertEquals(0.5, bracketed.get(500).getX(), 1e-12);
+    }
+
+    @Test
+    public void testIntegrator() {
+        Integrator integrator = new Integrator(1e-10, 1000000);
+        Integral square = integrator.integrate(new Polynomial(new Variable(), 2.0), 0, 3);
+        assertTrue(square.isConverged());
+        assertEquals(9.0, square.getValue(), 1e-12);
+        assertEquals(15, square.getEvaluations());
+        assertEquals(-9.0, integrator.integrate(new Polynomial(new Variable(), 2.0), 3, 0).getValue(), 1e-12);
+        Integral log = integrator.integrate(new Log(new Variable()), 0, 1);
+        assertTrue(log.isConverged());
+        assertEquals(-1.0, log.getValue(), 1e-9);
+        assertTrue(log.getPanels() > 1);
+        Integral inverse = integrator.integrate(new BinaryOp(Operator.DIVIDE, new Number(1.0), new Variable()), 1, 2);
+        assertEquals(Math.log(2), inverse.getValue(), 1e-12);
+        Integral pole = new Integrator(1e-10, 10000).integrate(new BinaryOp(Operator.DIVIDE, new Number(1.0), new Variable()), -1, 2);
+        assertFalse(pole.isConverged());
+        assertTrue(pole.getEvaluations() <= 10000);
+    }
+
+    @Test
+    public void testTreeStatistics() {
+        Function shared = new Log(new Variable());
+        Function f = new BinaryOp(Operator.MULTIPLY, shared, new BinaryOp(Operator.ADD, shared, new Log(new Variable())));
+        TreeStatistics statistics = TreeStatistics.of(f);
+        assertEquals(8, statistics.getNodeCount());
+        assertEquals(6, statistics.getObjectCount());
+        assertEquals(4, statistics.getDistinctCount());
+        assertEquals(2, statistics.getSharedCount());
+        assertEquals(4, statistics.getDepth());
+        assertEquals(3, statistics.getCount(Log.class));
+        assertEquals(3, statistics.getCount(Variable.class));
+        assertEquals(1, statistics.getCount(Operator.ADD));
+        assertEquals(0, statistics.getCount(Operator.DIVIDE));
+        Function d = new Polynomial(new Variable(), 3.0);
+        for (int i = 0; i < 8; i++) {
+            d = d.derivative();
+        }
+        assertTrue(TreeStatistics.of(d).getNodeCount() > TreeStatistics.of(d).getObjectCount());
+    }
+
+    @Test
+    public void testInstrumentedFunction() throws Exception {
+        EvaluationProfile profile = new EvaluationProfile(1);
+        Function f = new InstrumentedFunction(new BinaryOp(Operator.DIVIDE, new Log(new Variable()), new Variable()), profile);
+        assertEquals(Math.log(2.0) / 2.0, f.value(2.0), 0.0);
+        assertTrue(Double.isNaN(f.value(-1.0)));
+        assertEquals(2, profile.getSampledCalls());
+        assertEquals(1, profile.getNaNResults());
+        assertEquals(4, profile.getEvaluations(EvaluationProfile.Kind.VARIABLE));
+        assertEquals(2, profile.getEvaluations(EvaluationProfile.Kind.LOG));
+        assertEquals(1, profile.getNaNs(EvaluationProfile.Kind.LOG));
+        assertEquals(2, profile.getEvaluations(EvaluationProfile.Kind.DIVIDE));
+        long histogramTotal = 0;
+        for (long count : profile.getHistogram(EvaluationProfile.Kind.LOG)) {
+            histogramTotal += count;
+        }
+        assertEquals(2, histogramTotal);
+        Path file = Files.createTempFile("profile", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("functions.Derivative");
+            recording.enable("functions.Evaluation").withThreshold(Duration.ZERO);
+            recording.start();
+            Function derivative = f.derivative();
+            derivative.value(new double[] { 1.0, -1.0, 2.0 }, new double[3]);
+            recording.stop();
+            recording.dump(file);
+            assertEquals(2, profile.getNaNResults());
+            List<String> events = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                events.add(event.getEventType().getName());
+                if (event.getEventType().getName().equals("functions.Evaluation")) {
+                    assertEquals(3, event.getInt("arguments"));
+                    assertEquals(1, event.getInt("nanResults"));
+                }
+            }
+            assertTrue(events.contains("functions.Derivative"));
+            assertTrue(events.contains("functions.Evaluation"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testGradient() {
+        Function a = new IndexedVariable(0, "a");
+        Function b = new IndexedVariable(1, "b");
+        Function c = new IndexedVariable(2, "c");
+        Function f = new BinaryOp(Operator.SUBTRACT,
+                new BinaryOp(Operator.ADD, new BinaryOp(Operator.MULTIPLY, a, b), new BinaryOp(Operator.DIVIDE, new Log(c), a)),
+                new Polynomial(c, 2.0));
+        assertEquals("((a * b) + (Exp[c] / a)) - c ^2.0", f.toString());
+        Gradient gradient = new Gradient(f);
+        assertEquals(3, gradient.getVariableCount());
+        double[] bindings = { 2.0, 3.0, 5.0 };
+        double[] partials = new double[3];
+        double value = 2.0 * 3.0 + Math.log(5.0) / 2.0 - 25.0;
+        assertEquals(value, gradient.value(bindings), 1e-12);
+        assertEquals(value, gradient.gradient(bindings, partials), 1e-12);
+        assertEquals(3.0 - Math.log(5.0) / 4.0, partials[0], 1e-12);
+        assertEquals(2.0, partials[1], 1e-12);
+        assertEquals(1.0 / 10.0 - 10.0, partials[2], 1e-12);
+        assertFalse(a.equals(b));
+        assertEquals(new IndexedVariable(1, "b"), b);
+        Function g = new BinaryOp(Operator.MULTIPLY, new Variable(), new Log(new Variable()));
+        double[] derivative = new double[1];
+        assertEquals(g.value(3.0), new Gradient(g).gradient(new double[] { 3.0 }, derivative), 0.0);
+        assertEquals(g.derivative().value(3.0), derivative[0], 1e-12);
+        assertEquals(f.value(1.5), new Gradient(f).value(new double[] { 1.5, 1.5, 1.5 }), 1e-12);
+    }
+
+    @Test
+    public void testChebyshevSurrogate() {
+        Function f = new BinaryOp(Operator.ADD, new Log(new Variable()), new Polynomial(new Variable(), 2.5));
+        ChebyshevSurrogate surrogate = ChebyshevSurrogate.build(f, 0.1, 10.0, 1e-12);
+        assertTrue(surrogate.getMaxError() <= 1e-12 * Math.pow(10.0, 2.5));
+        Function derivative = surrogate.derivative();
+        Function exactDerivative = f.derivative();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            double x = 0.1 + random.nextDouble() * 9.9;
+            assertEquals(f.value(x), surrogate.value(x), 1e-12 * Math.max(1, Math.abs(f.value(x))));
+            assertEquals(exactDerivative.value(x), derivative.value(x), 1e-8 * Math.max(1, Math.abs(exactDerivative.value(x))));
+        }
+        assertEquals(f.value(20.0), surrogate.value(20.0), 0.0);
+        ChebyshevSurrogate log = ChebyshevSurrogate.build(new Log(new Variable()), -1.0, 1.0, 1e-12);
+        assertTrue(log.getPieceCount() < 1000);
+        assertTrue(Double.isNaN(log.value(-0.5)));
+        assertEquals(Math.log(0.5), log.value(0.5), 1e-12);
+        assertTrue(log.getMaxError() <= 1e-12);
+        for (int i = 0; i < 1000; i++) {
+            double x = Math.scalb(random.nextDouble(), -random.nextInt(60));
+            assertEquals(Math.log(x), log.value(x), 1e-12 * Math.max(1, Math.abs(Math.log(x))));
+        }
+    }
+
+    @Test
+    public void testIntervalPruner() {
+        Function x = new Variable();
+        Function f = new BinaryOp(Operator.DIVIDE,
+                new BinaryOp(Operator.SUBTRACT, new Polynomial(x, 2.0), new Number(2.0)),
+                new Log(new BinaryOp(Operator.ADD, x, new Number(3.0))));
+        IntervalEvaluator evaluator = new IntervalEvaluator(f);
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            double a = -5 + 10 * random.nextDouble();
+            double b = a + random.nextDouble();
+            Interval bound = evaluator.value(a, b);
+            for (int j = 0; j <= 10; j++) {
+                assertTrue(bound.contains(f.value(a + (b - a) * j / 10)));
+            }
+        }
+        assertTrue(new Interval(1.0, 2.0).log().contains(0.0) && !new Interval(1.0, 2.0).log().mayBeNaN());
+        assertTrue(new Interval(-1.0, 2.0).log().mayBeNaN());
+        assertTrue(new Interval(-2.0, -1.0).log().isEmpty());
+        assertEquals(Double.POSITIVE_INFINITY, new Interval(1.0, 2.0).divide(new Interval(-1.0, 1.0)).getUpper(), 0.0);
+        assertFalse(new Interval(-2.0, 3.0).pow(2.0).contains(-1e-300));
+        IntervalPruner pruner = new IntervalPruner();
+        Regions roots = pruner.roots(f, -2.0, 4.0);
+        assertTrue(roots.contains(Math.sqrt(2.0)) && roots.contains(-Math.sqrt(2.0)) && roots.contains(-1.999999));
+        assertFalse(roots.contains(0.0) || roots.contains(3.0));
+        assertTrue(roots.getFraction() < 0.01);
+        Regions nans = pruner.nans(f, -5.0, 5.0);
+        assertTrue(nans.contains(-4.0) && nans.contains(-3.0));
+        assertFalse(nans.contains(-2.99) || nans.contains(0.0));
+        assertEquals(1, nans.size());
+        assertTrue(nans.getBoxes() < 100);
+    }
+
+    @Test
+    public void testBlockValueAliasing() {
+        Function x = new Variable();
+        Function f = new BinaryOp(Operator.ADD, new Polynomial(x, 2.0), x);
+        double[] a = new double[3000];
+        double[] expected = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i + 1;
+            expected[i] = f.value(a[i]);
+        }
+        double[] b = a.clone();
+        f.value(a, a);
+        assertArrayEquals(expected, a, 0.0);
+        double[] derivatives = new double[b.length];
+        Sampler.sample(f, b, b, derivatives);
+        assertArrayEquals(expected, b, 0.0);
+        assertEquals(2 * 3000.0 + 1, derivatives[2999], 0.0);
+        try {
+            Sampler.sample(f, 0.0, 0.5, derivatives, derivatives);
+            fail("Expected the shared output array to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(2 * 3000.0 + 1, derivatives[2999], 0.0);
+        }
+    }
+
+    @Test
+    public void testSimplifierPowerDomains() {
+        Variable x = new Variable();
+        Function[] functions = {
+            new Polynomial(new Polynomial(x, 2.0), 0.5),
+            new Polynomial(new Polynomial(x, 3.0), 1.0 / 3.0),
+            new Polynomial(new Polynomial(x, 0.5), 2.0),
+            new Polynomial(new Polynomial(x, 3.0), 0.5),
+            new Polynomial(new Polynomial(x, 2.0), -3.0),
+            new BinaryOp(Operator.MULTIPLY, new Polynomial(x, 0.5), new Polynomial(x, 0.5)),
+            new BinaryOp(Operator.DIVIDE, new Polynomial(x, 1.5), new Polynomial(x, 0.5)),
+            new BinaryOp(Operator.DIVIDE, new Polynomial(x, 3.0), x)
+        };
+        for (Function f : functions) {
+            Function simplified = Simplifier.simplify(f);
+            for (double v = -3.0; v <= 3.0; v += 0.5) {
+                if (v != 0) {
+                    assertEquals(f.toString(), f.value(v), simplified.value(v), 1e-12 * Math.max(1, Math.abs(f.value(v))));
+                }
+            }
+        }
+        assertEquals(new Polynomial(x, 6.0), Simplifier.simplify(new Polynomial(new Polynomial(x, 2.0), 3.0)));
+        assertEquals(new Polynomial(x, 1.5), Simplifier.simplify(new Polynomial(new Polynomial(x, 3.0), 0.5)));
+        assertEquals(new Polynomial(x, 2.0), Simplifier.simplify(new BinaryOp(Operator.DIVIDE, new Polynomial(x, 3.0), x)));
+    }
+
+    @Test
+    public void testDensePolynomialDivide() {
+        Variable x = new Variable();
+        DensePolynomial p = DensePolynomial.fromFunction(new BinaryOp(Operator.DIVIDE,
+                new BinaryOp(Operator.ADD, new BinaryOp(Operator.MULTIPLY, new Number(3.0), x), new Number(7.0)), new Number(10.0)));
+        assertArrayEquals(new double[] { 7.0 / 10.0, 3.0 / 10.0 }, p.getCoefficients(), 0.0);
+        assertArrayEquals(new double[] { 0.3, 0.6 }, new DensePolynomial(3.0, 6.0).divide(10.0).getCoefficients(), 0.0);
+    }
+
+    @Test
+    public void testFunctionParserDeep() {
+        Function chain = new Variable();
+        Function nested = new Variable();
+        for (int i = 0; i < 100000; i++) {
+            chain = new BinaryOp(i % 2 == 0 ? Operator.ADD : Operator.SUBTRACT, chain, new Number(1.0));
+            nested = i % 2 == 0 ? new Log(nested) : new BinaryOp(Operator.MULTIPLY, new Number(2.0), nested);
+        }
+        String text = chain.toString();
+        Function parsed = FunctionParser.parse(text);
+        assertEquals(text, IterativeEngine.toString(parsed));
+        assertEquals(2.0, IterativeEngine.value(parsed, 2.0), 0.0);
+        text = nested.toString();
+        assertEquals(text, IterativeEngine.toString(FunctionParser.parse(text)));
+    }
+
+    @Test
+    public void testFunctionCodecSignedZeros() throws Exception {
+        Function f = new BinaryOp(Operator.SUBTRACT, new BinaryOp(Operator.DIVIDE, new Number(1.0), new Number(0.0)),
+                new BinaryOp(Operator.DIVIDE, new Number(1.0), new Number(-0.0)));
+        assertEquals(Double.POSITIVE_INFINITY, f.value(0), 0.0);
+        byte[] bytes = FunctionCodec.encode(f);
+        assertEquals(Double.POSITIVE_INFINITY, FunctionCodec.decode(bytes).value(0), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, FunctionCodec.value(ByteBuffer.wrap(bytes), 0, 0), 0.0);
+        Path file = Files.createTempFile("store", ".bin");
+        try {
+            try (ExpressionStore store = ExpressionStore.open(file)) {
+                for (int i = 0; i < 10000; i++) {
+                    assertEquals(i, store.append(new Number(i)));
+                    assertEquals(i, store.get(i).value(0), 0.0);
+                }
+            }
+            try (ExpressionStore store = ExpressionStore.open(file)) {
+                assertEquals(10000, store.size());
+                assertEquals(10000, store.append(f));
+                assertEquals(Double.POSITIVE_INFINITY, store.get(10000).value(0), 0.0);
+                assertEquals(9999.0, store.get(9999).value(0), 0.0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRootFinderNaN() {
+        Function x = new Variable();
+        Function f = new Log(new BinaryOp(Operator.MULTIPLY, new BinaryOp(Operator.SUBTRACT, x, new Number(1.0)),
+                new BinaryOp(Operator.SUBTRACT, x, new Number(2.0))));
+        RootFinder finder = new RootFinder();
+        assertTrue(Double.isNaN(f.value(1.75)));
+        Root root = finder.solve(f, 0.5, 3.0);
+        assertEquals(Root.Status.CONVERGED, root.getStatus());
+        assertEquals((3 + Math.sqrt(5)) / 2, root.getX(), 1e-9);
+        Root mirrored = finder.solve(new BinaryOp(Operator.SUBTRACT, new Number(0.0), f), 0.5, 3.0);
+        assertEquals(Root.Status.CONVERGED, mirrored.getStatus());
+        assertEquals((3 + Math.sqrt(5)) / 2, mirrored.getX(), 1e-9);
+        Root lower = finder.solve(f, 0.0, 2.2);
+        assertEquals(Root.Status.CONVERGED, lower.getStatus());
+        assertEquals((3 - Math.sqrt(5)) / 2, lower.getX(), 1e-9);
+    }
+
+    @Test
+    public void testIndexedVariablePersistence() {
+        Function f = new BinaryOp(Operator.MULTIPLY, new Polynomial(new IndexedVariable(0), 2.0),
+                new Log(new BinaryOp(Operator.ADD, new IndexedVariable(12), new IndexedVariable(3, "rate"))));
+        Function decoded = FunctionCodec.decode(FunctionCodec.encode(f));
+        assertEquals(f, decoded);
+        assertEquals(f.value(2.0), FunctionCodec.value(ByteBuffer.wrap(FunctionCodec.encode(f)), 0, 2.0), 0.0);
+        double[] bindings = new double[13];
+        for (int i = 0; i < bindings.length; i++) {
+            bindings[i] = 1.0 + i;
+        }
+        assertEquals(new Gradient(f).value(bindings), new Gradient(decoded).value(bindings), 0.0);
+        Function g = new BinaryOp(Operator.SUBTRACT, new IndexedVariable(7), new Polynomial(new Variable(), 3.0));
+        assertEquals(g, FunctionParser.parse(g.toString()));
+        assertEquals("x7 - x ^3.0", FunctionParser.parse("x7 - x ^3.0").toString());
+        try {
+            FunctionParser.parse("x99999999999");
+            fail("Expected an out of range index");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Variable index out of range"));
+        }
+    }
+
+    @Test
+    public void testIntervalPowerRounding() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double x = (2 * random.nextDouble() - 1) * Math.scalb(1.0, random.nextInt(20) - 10);
+            int n = random.nextInt(81) - 40;
+            assertTrue(x + " ^" + n, Interval.of(x).pow(n).contains(Polynomial.pow(x, n)));
+        }
+        Interval cube = new Interval(-2, 3).pow(3);
+        assertTrue(cube.getLower() <= -8 && cube.getUpper() >= 27);
+        Function x = new Variable();
+        Function f = new BinaryOp(Operator.DIVIDE, new Polynomial(x, -0.5),
+                new BinaryOp(Operator.SUBTRACT, new Polynomial(x, -0.5), new Number(1.0)));
+        assertTrue(Double.isNaN(f.value(0)));
+        Regions nans = new IntervalPruner().nans(f, 0, 1);
+        assertTrue(nans.size() > 0);
+        assertTrue(nans.contains(0));
+    }
+
+    @Test
+    public void testIntervalEvaluatorInfinitePowers() {
+        Function x = new Variable();
+        Function f = new Polynomial(new Log(x), -0.5);
+        assertEquals(0.0, f.value(0), 0.0);
+        assertTrue(new IntervalEvaluator(f).value(0, 0.5).contains(0));
+        assertTrue(new IntervalPruner().roots(f, 0, 0.5).contains(0));
+        Random random = new Random(7);
+        for (int tree = 0; tree < 2000; tree++) {
+            List<Function> nodes = new ArrayList<>();
+            nodes.add(x);
+            nodes.add(new Number(0.0));
+            nodes.add(new Number(-1.5));
+            nodes.add(new Number(2.5));
+            for (int i = 0; i < 6; i++) {
+                Function operand = nodes.get(random.nextInt(nodes.size()));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        nodes.add(new Log(operand));
+                        break;
+                    case 1:
+                        nodes.add(new Polynomial(operand, random.nextInt(13) / 2.0 - 3));
+                        break;
+                    default:
+                        nodes.add(new BinaryOp(Operator.values()[random.nextInt(4)], operand, nodes.get(random.nextInt(nodes.size()))));
+                        break;
+                }
+            }
+            Function g = nodes.get(nodes.size() - 1);
+            double lower = random.nextBoolean() ? 0 : 4 * random.nextDouble() - 2;
+            double upper = lower + random.nextDouble();
+            Interval bound = new IntervalEvaluator(g).value(lower, upper);
+            for (int i = 0; i <= 16; i++) {
+                double v = lower + (upper - lower) * i / 16;
+                assertTrue(g + " at " + v, bound.contains(g.value(v)));
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Gradient class evaluates a multi-variable Function tree and its gradient with reverse-mode
+ * automatic differentiation. The tree is flattened once into slots in post-order. A forward
+ * sweep computes the value of every slot from the bindings, and a backward sweep propagates the
+ * adjoints from the root to the variables, so the whole gradient costs about two evaluations
+ * whatever the number of variables. IndexedVariable nodes take element getIndex () of the
+ * bindings, and Variable nodes take element 0.
+ */
+public class Gradient {
+    private static final int VARIABLE = 0;
+    private static final int NUMBER = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int LOG = 6;
+    private static final int POLYNOMIAL = 7;
+
+    private final Function function;
+    private final int[] kinds;
+    private final int[] leftSlots;
+    private final int[] rightSlots;
+    private final double[] constants;
+    private final int variableCount;
+    public Gradient(Function function) {
+        this.function = function;
+        List<Function> order = new ArrayList<>();
+        Map<Function, Integer> slots = new IdentityHashMap<>();
+        IterativeEngine.WorkStack work = new IterativeEngine.WorkStack(function);
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            // Assigns slots in post-order and gives a node reached through several parents one slot.
+            if (slots.containsKey(node) || !expanded && work.expand(node)) {
+                continue;
+            }
+            slots.put(node, order.size());
+            order.add(node);
+        }
+        int size = order.size();
+        this.kinds = new int[size];
+        this.leftSlots = new int[size];
+        this.rightSlots = new int[size];
+        this.constants = new double[size];
+        int variables = 0;
+        for (int i = 0; i < size; i++) {
+            Function node = order.get(i);
+            if (node instanceof BinaryOp) {
+                BinaryOp binaryOp = (BinaryOp) node;
+                kinds[i] = ADD + binaryOp.getOperator().ordinal();
+                leftSlots[i] = slots.get(binaryOp.getLeftOperand());
+                rightSlots[i] = slots.get(binaryOp.getRightOperand());
+            } else if (node instanceof Log) {
+                kinds[i] = LOG;
+                leftSlots[i] = slots.get(((Log) node).getOperand());
+            } else if (node instanceof Polynomial) {
+                Polynomial polynomial = (Polynomial) node;
+                kinds[i] = POLYNOMIAL;
+                leftSlots[i] = slots.get(polynomial.getOperand());
+                constants[i] = polynomial.getPower();
+            } else if (node instanceof Number) {
+                kinds[i] = NUMBER;
+                constants[i] = ((Number) node).getValue();
+            } else if (node instanceof IndexedVariable || node instanceof Variable) {
+                int index = node instanceof IndexedVariable ? ((IndexedVariable) node).getIndex() : 0;
+                kinds[i] = VARIABLE;
+                leftSlots[i] = index;
+                variables = Math.max(variables, index + 1);
+            } else {
+                throw new IllegalArgumentException("Unsupported node type: " + node.getClass().getName());
+            }
+        }
+        this.variableCount = variables;
+    }
+    /**
+    * Evaluates the function with the given variable bindings.
+    *
+    * @param bindings - the values of the variables, element i for the variable with index i. Must have at least #getVariableCount () elements.
+    *
+    * @return the value of the function
+    */
+    public double value(double[] bindings) {
+        checkBindings(bindings);
+        double[] values = new double[kinds.length];
+        forward(bindings, values);
+        return values[values.length - 1];
+    }
+    /**
+    * Evaluates the function and its gradient with the given variable bindings, in one forward and one backward sweep.
+    *
+    * @param bindings - the values of the variables, element i for the variable with index i. Must have at least #getVariableCount () elements.
+    * @param gradient - the array receiving the partial derivatives, element i for the variable with index i. Must have at least #getVariableCount () elements.
+    *
+    * @return the value of the function
+    */
+    public double gradient(double[] bindings, double[] gradient) {
+        checkBindings(bindings);
+        // Checks that every variable has a place for its partial derivative.
+        if (gradient.length < variableCount) {
+            throw new IllegalArgumentException("Gradient array is shorter than the number of variables: " + variableCount);
+        }
+        int size = kinds.length;
+        double[] values = new double[size];
+        double[] adjoints = new double[size];
+        forward(bindings, values);
+        Arrays.fill(gradient, 0, variableCount, 0);
+        adjoints[size - 1] = 1;
+        for (int i = size - 1; i >= 0; i--) {
+            double adjoint = adjoints[i];
+            int left = leftSlots[i];
+            int right = rightSlots[i];
+            // Adds the contribution of the node to the adjoints of its operands.
+            switch (kinds[i]) {
+                case VARIABLE:
+                    gradient[left] += adjoint;
+                    break;
+                case NUMBER:
+                    break;
+                case ADD:
+                    adjoints[left] += adjoint;
+                    adjoints[right] += adjoint;
+                    break;
+                case SUBTRACT:
+                    adjoints[left] += adjoint;
+                    adjoints[right] -= adjoint;
+                    break;
+                case MULTIPLY:
+                    adjoints[left] += adjoint * values[right];
+                    adjoints[right] += adjoint * values[left];
+                    break;
+                case DIVIDE:
+                    adjoints[left] += adjoint / values[right];
+                    adjoints[right] -= adjoint * values[left] / (values[right] * values[right]);
+                    break;
+                case LOG:
+                    adjoints[left] += adjoint / values[left];
+                    break;
+                case POLYNOMIAL:
+                    adjoints[left] += adjoint * constants[i] * Polynomial.pow(values[left], constants[i] - 1);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown slot kind: " + kinds[i]);
+            }
+        }
+        return values[size - 1];
+    }
+    /**
+    * Returns the number of bindings the function needs, that is one more than the largest variable index.
+    *
+    *
+    * @return the number of variables of the function
+    */
+    public int getVariableCount() {
+        return variableCount;
+    }
+    /**
+    * Returns the tree this gradient was built from.
+    *
+    *
+    * @return the source tree
+    */
+    public Function getFunction() {
+        return function;
+    }
+    /**
+    * Returns the string representation of the source tree.
+    *
+    *
+    * @return the string representation of the source tree
+    */
+    public String toString() {
+        return function.toString();
+    }
+
+    private void forward(double[] bindings, double[] values) {
+        for (int i = 0; i < kinds.length; i++) {
+            // Evaluates the node from the values of its operand slots.
+            switch (kinds[i]) {
+                case VARIABLE:
+                    values[i] = bindings[leftSlots[i]];
+                    break;
+                case NUMBER:
+                    values[i] = constants[i];
+                    break;
+                case ADD:
+                    values[i] = values[leftSlots[i]] + values[rightSlots[i]];
+                    break;
+                case SUBTRACT:
+                    values[i] = values[leftSlots[i]] - values[rightSlots[i]];
+                    break;
+                case MULTIPLY:
+                    values[i] = values[leftSlots[i]] * values[rightSlots[i]];
+                    break;
+                case DIVIDE:
+                    values[i] = values[leftSlots[i]] / values[rightSlots[i]];
+                    break;
+                case LOG:
+                    values[i] = Math.log(values[leftSlots[i]]);
+                    break;
+                case POLYNOMIAL:
+                    values[i] = Polynomial.pow(values[leftSlots[i]], constants[i]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown slot kind: " + kinds[i]);
+            }
+        }
+    }
+
+    private void checkBindings(double[] bindings) {
+        if (bindings.length < variableCount) {
+            throw new IllegalArgumentException("Bindings array is shorter than the number of variables: " + variableCount);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The IndexedVariable class is a variable of a multi-variable function. It takes its value from
+ * element index of the bindings passed to Gradient. Used as a single-variable Function, every
+ * variable takes the argument x, so the existing evaluators see it as x. FunctionCodec keeps the
+ * index and the name; FunctionParser reads x followed by digits as the variable with that index
+ * and its default name, so a variable with another name prints text that cannot be read back.
+ */
+public class IndexedVariable implements Function {
+    private final int index;
+    private final String name;
+    public IndexedVariable(int index) {
+        this(index, "x" + index);
+    }
+    public IndexedVariable(int index, String name) {
+        // Checks that the variable can be bound to an array element.
+        if (index < 0) {
+            throw new IllegalArgumentException("Variable index must not be negative: " + index);
+        }
+        this.index = index;
+        this.name = name;
+    }
+    /**
+    * Returns the argument, since a single-variable evaluation binds every variable to it.
+    *
+    * @param x - the argument to the function
+    *
+    * @return x
+    */
+    public double value(double x) {
+        return x;
+    }
+    /**
+    * Copies a block of arguments into out, since the value of the variable is its argument.
+    *
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to copy
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        System.arraycopy(xs, from, out, outFrom, length);
+    }
+    /**
+    * Returns the derivative of the variable with respect to the single argument x, which is 1. Partial derivatives are computed by Gradient.
+    *
+    *
+    * @return the Number 1
+    */
+    public Function derivative() {
+        return new Number(1);
+    }
+    /**
+    * Returns the index of the binding of this variable.
+    *
+    *
+    * @return the index of the variable
+    */
+    public int getIndex() {
+        return index;
+    }
+    /**
+    * Returns the name of this variable.
+    *
+    *
+    * @return the name of the variable
+    */
+    public String getName() {
+        return name;
+    }
+    /**
+    * Returns the name of this variable.
+    *
+    *
+    * @return the name of the variable
+    */
+    public String toString() {
+        return name;
+    }
+    /**
+    * Compares this variable with another. Two indexed variables are equal if they have the same index and name.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is an IndexedVariable with the same index and name
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is the same variable.
+        if (obj instanceof IndexedVariable) {
+            IndexedVariable other = (IndexedVariable) obj;
+            return index == other.index && name.equals(other.name);
+        }
+        return false;
+    }
+    /**
+    * Returns a hash code computed from the index and the name.
+    *
+    *
+    * @return the hash code of the variable
+    */
+    public int hashCode() {
+        return 31 * index + name.hashCode();
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * The InstrumentedFunction class records how a Function is evaluated into an EvaluationProfile.
+ * Most evaluations go straight to the wrapped tree; one in every sampling interval walks the tree
+ * node by node and records the count, NaN results and self time of every node. Batch evaluations
+ * and derivative constructions also emit Flight Recorder events. Trees that are not wrapped are
+ * not affected at all.
+ */
+public class InstrumentedFunction implements Function {
+    private final Function function;
+    private final EvaluationProfile profile;
+    public InstrumentedFunction(Function function, EvaluationProfile profile) {
+        this.function = function;
+        this.profile = profile;
+    }
+    /**
+    * Evaluates the wrapped function, measuring every node if this evaluation is sampled.
+    *
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public double value(double x) {
+        boolean sampled = profile.sample();
+        double result = sampled ? measure(function, x, new long[1]) : function.value(x);
+        profile.recordCall(sampled, result);
+        return result;
+    }
+    /**
+    * Evaluates the wrapped function over a block of arguments and emits an EvaluationEvent for it.
+    *
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        function.value(xs, from, out, outFrom, length);
+        event.end();
+        int nanResults = 0;
+        for (int i = 0; i < length; i++) {
+            if (Double.isNaN(out[outFrom + i])) {
+                nanResults++;
+            }
+        }
+        profile.recordNaNResults(nanResults);
+        if (event.shouldCommit()) {
+            event.arguments = length;
+            event.nanResults = nanResults;
+            event.commit();
+        }
+    }
+    /**
+    * Returns the derivative of the wrapped function, instrumented into the same profile, and emits a DerivativeEvent with the sizes of both trees.
+    *
+    *
+    * @return an InstrumentedFunction for the derivative
+    */
+    public Function derivative() {
+        DerivativeEvent event = new DerivativeEvent();
+        event.begin();
+        Function derivative = function.derivative();
+        event.end();
+        if (event.shouldCommit()) {
+            TreeStatistics derivativeStatistics = TreeStatistics.of(derivative);
+            event.sourceNodes = TreeStatistics.of(function).getNodeCount();
+            event.derivativeNodes = derivativeStatistics.getNodeCount();
+            event.derivativeObjects = derivativeStatistics.getObjectCount();
+            event.commit();
+        }
+        return new InstrumentedFunction(derivative, profile);
+    }
+    /**
+    * Returns the wrapped function.
+    *
+    *
+    * @return the function this wrapper evaluates
+    */
+    public Function getFunction() {
+        return function;
+    }
+    /**
+    * Returns the profile receiving the measurements.
+    *
+    *
+    * @return the profile of this function
+    */
+    public EvaluationProfile getProfile() {
+        return profile;
+    }
+    /**
+    * Returns the string representation of the wrapped function.
+    *
+    *
+    * @return the string representation of the wrapped function
+    */
+    public String toString() {
+        return function.toString();
+    }
+    /**
+    * Compares this function with another. Two instrumented functions are equal if they wrap equal functions into the same profile.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is an InstrumentedFunction with an equal function and the same profile
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is an instrumented function.
+        if (obj instanceof InstrumentedFunction) {
+            InstrumentedFunction other = (InstrumentedFunction) obj;
+            return profile == other.profile && function.equals(other.function);
+        }
+        return false;
+    }
+    /**
+    * Returns the hash code of the wrapped function.
+    *
+    *
+    * @return the hash code of the wrapped function
+    */
+    public int hashCode() {
+        return function.hashCode();
+    }
+
+    /**
+     * Evaluates the node and its operands, records the node with its self time, and stores its
+     * total time in elapsed[0].
+     */
+    private double measure(Function node, double x, long[] elapsed) {
+        long start = System.nanoTime();
+        long operands = 0;
+        double result;
+        if (node instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) node;
+            double left = measure(binaryOp.getLeftOperand(), x, elapsed);
+            operands += elapsed[0];
+            double right = measure(binaryOp.getRightOperand(), x, elapsed);
+            operands += elapsed[0];
+            result = BinaryOp.apply(binaryOp.getOperator(), left, right);
+        } else if (node instanceof Log) {
+            double operand = measure(((Log) node).getOperand(), x, elapsed);
+            operands += elapsed[0];
+            result = Math.log(operand);
+        } else if (node instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) node;
+            double operand = measure(polynomial.getOperand(), x, elapsed);
+            operands += elapsed[0];
+            result = Polynomial.pow(operand, polynomial.getPower());
+        } else {
+            result = node.value(x);
+        }
+        long total = System.nanoTime() - start;
+        elapsed[0] = total;
+        profile.recordNode(EvaluationProfile.Kind.of(node), total - operands, result);
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * The Integral class holds the result of a numerical integration: the estimate of the integral,
+ * an estimate of its absolute error, and the work spent on it.
+ */
+public final class Integral {
+    private final double value;
+    private final double error;
+    private final long evaluations;
+    private final int panels;
+    private final boolean converged;
+    public Integral(double value, double error, long evaluations, int panels, boolean converged) {
+        this.value = value;
+        this.error = error;
+        this.evaluations = evaluations;
+        this.panels = panels;
+        this.converged = converged;
+    }
+    /**
+    * Returns the estimate of the integral.
+    *
+    *
+    * @return the sum of the estimates of all panels
+    */
+    public double getValue() {
+        return value;
+    }
+    /**
+    * Returns the estimate of the absolute error of #getValue ().
+    *
+    *
+    * @return the sum of the error estimates of all panels
+    */
+    public double getError() {
+        return error;
+    }
+    /**
+    * Returns the number of times the function was evaluated.
+    *
+    *
+    * @return the number of evaluations
+    */
+    public long getEvaluations() {
+        return evaluations;
+    }
+    /**
+    * Returns the number of panels the interval was divided into.
+    *
+    *
+    * @return the number of accepted panels
+    */
+    public int getPanels() {
+        return panels;
+    }
+    /**
+    * Returns true if the error estimate met the tolerance within the evaluation budget.
+    *
+    *
+    * @return true if the integration converged
+    */
+    public boolean isConverged() {
+        return converged;
+    }
+    /**
+    * Returns the string representation of the integral.
+    *
+    *
+    * @return the value, error and work in human readable form
+    */
+    public String toString() {
+        return value + " +/- " + error + " (" + evaluations + " evaluations, " + panels + " panels"
+                + (converged ? ")" : ", not converged)");
+    }
+}
@@ -0,0 +1,174 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Integrator class integrates Function trees with the adaptive 7-point Gauss and 15-point
+ * Kronrod rule. Each panel is evaluated with one batch call over its 15 nodes, and the difference
+ * between the Gauss and Kronrod estimates is its error estimate. A panel whose error exceeds its
+ * share of the tolerance is split in halves, and the halves are integrated as fork-join tasks, so
+ * idle threads steal the panels around spikes and poles. The nodes are interior, so the
+ * integrand is never evaluated at the ends of the interval.
+ */
+public class Integrator {
+    private static final double DEFAULT_TOLERANCE = 1e-10;
+    private static final long DEFAULT_MAX_EVALUATIONS = 10000000;
+    private static final int NODES = 15;
+
+    /**
+     * The Kronrod nodes in decreasing order; the odd ones are also the Gauss nodes.
+     */
+    private static final double[] KRONROD_NODES = {
+        0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+        0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+        0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+        0.207784955007898467600689403773245, 0.0
+    };
+    private static final double[] KRONROD_WEIGHTS = {
+        0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+        0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+        0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+        0.204432940075298892414161999234649, 0.209482141084727828012999174891714
+    };
+    private static final double[] GAUSS_WEIGHTS = {
+        0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+        0.381830050505118944950369775488975, 0.417959183673469387755102040816327
+    };
+
+    private final double tolerance;
+    private final long maxEvaluations;
+    public Integrator() {
+        this(DEFAULT_TOLERANCE, DEFAULT_MAX_EVALUATIONS);
+    }
+    public Integrator(double tolerance, long maxEvaluations) {
+        // Checks that the integration can converge and has room for one panel.
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        if (maxEvaluations < NODES) {
+            throw new IllegalArgumentException("Evaluation budget must allow one panel: " + maxEvaluations);
+        }
+        this.tolerance = tolerance;
+        this.maxEvaluations = maxEvaluations;
+    }
+    /**
+    * Integrates the function from a to b. The integration stops splitting panels once the error estimate meets the tolerance, or when the evaluation budget is spent, in which case the result is marked as not converged.
+    *
+    * @param function - the function to integrate
+    * @param a - the lower limit. Must be finite.
+    * @param b - the upper limit. Must be finite.
+    *
+    * @return the integral with its error estimate and the number of evaluations
+    */
+    public Integral integrate(Function function, double a, double b) {
+        // Checks that the limits are finite and handles reversed limits.
+        if (!Double.isFinite(a) || !Double.isFinite(b)) {
+            throw new IllegalArgumentException("Limits must be finite: [" + a + ", " + b + "]");
+        }
+        if (a == b) {
+            return new Integral(0, 0, 0, 0, true);
+        }
+        if (a > b) {
+            Integral reversed = integrate(function, b, a);
+            return new Integral(-reversed.getValue(), reversed.getError(), reversed.getEvaluations(),
+                    reversed.getPanels(), reversed.isConverged());
+        }
+        AtomicLong evaluations = new AtomicLong(NODES);
+        Panel panel = ForkJoinPool.commonPool().invoke(
+                new PanelTask(function, a, b, tolerance / (b - a), evaluations, panel(function, a, b)));
+        return new Integral(panel.value, panel.error, evaluations.get(), panel.count,
+                panel.error <= tolerance && !panel.truncated);
+    }
+
+    /**
+     * Evaluates the Gauss and Kronrod rules on [a, b].
+     */
+    private static Panel panel(Function function, double a, double b) {
+        double center = 0.5 * (a + b);
+        double halfLength = 0.5 * (b - a);
+        double[] xs = new double[NODES];
+        double[] values = new double[NODES];
+        xs[0] = center;
+        for (int j = 0; j < KRONROD_NODES.length - 1; j++) {
+            double offset = halfLength * KRONROD_NODES[j];
+            xs[2 * j + 1] = center - offset;
+            xs[2 * j + 2] = center + offset;
+        }
+        function.value(xs, 0, values, 0, NODES);
+        double kronrod = KRONROD_WEIGHTS[7] * values[0];
+        double gauss = GAUSS_WEIGHTS[3] * values[0];
+        for (int j = 0; j < KRONROD_NODES.length - 1; j++) {
+            double sum = values[2 * j + 1] + values[2 * j + 2];
+            kronrod += KRONROD_WEIGHTS[j] * sum;
+            if (j % 2 == 1) {
+                gauss += GAUSS_WEIGHTS[j / 2] * sum;
+            }
+        }
+        kronrod *= halfLength;
+        gauss *= halfLength;
+        double error = Math.abs(kronrod - gauss);
+        return new Panel(kronrod, Double.isNaN(error) ? Double.POSITIVE_INFINITY : error, 1, false);
+    }
+
+    /**
+     * The estimate and error of a panel, or of the sum of several panels.
+     */
+    private static final class Panel {
+        final double value;
+        final double error;
+        final int count;
+        final boolean truncated;
+
+        Panel(double value, double error, int count, boolean truncated) {
+            this.value = value;
+            this.error = error;
+            this.count = count;
+            this.truncated = truncated;
+        }
+    }
+
+    /**
+     * Refines a panel whose rules were already evaluated, splitting it while its error exceeds
+     * its share of the tolerance.
+     */
+    @SuppressWarnings("serial")
+    private final class PanelTask extends RecursiveTask<Panel> {
+        private final Function function;
+        private final double a;
+        private final double b;
+        private final double density;
+        private final AtomicLong evaluations;
+        private final Panel panel;
+
+        PanelTask(Function function, double a, double b, double density, AtomicLong evaluations, Panel panel) {
+            this.function = function;
+            this.a = a;
+            this.b = b;
+            this.density = density;
+            this.evaluations = evaluations;
+            this.panel = panel;
+        }
+
+        @Override
+        protected Panel compute() {
+            double middle = 0.5 * (a + b);
+            // Accepts the panel if it is accurate enough or cannot be split any further.
+            if (panel.error <= density * (b - a) || middle <= a || middle >= b) {
+                return panel;
+            }
+            if (evaluations.addAndGet(2 * NODES) > maxEvaluations) {
+                evaluations.addAndGet(-2 * NODES);
+                return new Panel(panel.value, panel.error, 1, true);
+            }
+            Panel left = panel(function, a, middle);
+            Panel right = panel(function, middle, b);
+            PanelTask leftTask = new PanelTask(function, a, middle, density, evaluations, left);
+            PanelTask rightTask = new PanelTask(function, middle, b, density, evaluations, right);
+            rightTask.fork();
+            Panel leftResult = leftTask.compute();
+            Panel rightResult = rightTask.join();
+            return new Panel(leftResult.value + rightResult.value, leftResult.error + rightResult.error,
+                    leftResult.count + rightResult.count, leftResult.truncated || rightResult.truncated);
+        }
+    }
+}
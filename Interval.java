@@ -0,0 +1,355 @@
+/**
+ * The Interval class is a closed range of doubles used to bound the values of a Function over a
+ * range of arguments. Every operation rounds its ends outwards with Math#nextDown and Math#nextUp,
+ * so the result encloses the exact result for every pair of values of the operands; ends computed
+ * with Math#log and Math#pow, which are accurate to one ulp, are moved out by two ulps, and small
+ * integer powers are rounded outwards at every step of the squaring Polynomial uses. The ends may
+ * be infinite. The flag mayBeNaN records that some argument in the range may give NaN, and an empty
+ * interval with the flag set means the result is NaN for every argument.
+ */
+public final class Interval {
+    /**
+     * The interval holding every double and NaN. It is the bound of functions nothing is known about.
+     */
+    public static final Interval UNBOUNDED = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true);
+    /**
+     * The interval holding only NaN.
+     */
+    public static final Interval NAN = new Interval(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, true);
+
+    private final double lower;
+    private final double upper;
+    private final boolean mayBeNaN;
+    public Interval(double lower, double upper) {
+        // Checks that the ends describe a range.
+        if (!(lower <= upper)) {
+            throw new IllegalArgumentException("Invalid interval: [" + lower + ", " + upper + "]");
+        }
+        this.lower = lower;
+        this.upper = upper;
+        this.mayBeNaN = false;
+    }
+    private Interval(double lower, double upper, boolean mayBeNaN) {
+        this.lower = lower;
+        this.upper = upper;
+        this.mayBeNaN = mayBeNaN;
+    }
+    /**
+    * Returns the interval holding only the given value. A NaN value gives NAN.
+    *
+    * @param value - the value of the interval
+    *
+    * @return the degenerate interval [value, value]
+    */
+    public static Interval of(double value) {
+        return Double.isNaN(value) ? NAN : new Interval(value, value, false);
+    }
+    /**
+    * Returns the lower end of the interval.
+    *
+    *
+    * @return the lower end, or positive infinity if the interval is empty
+    */
+    public double getLower() {
+        return lower;
+    }
+    /**
+    * Returns the upper end of the interval.
+    *
+    *
+    * @return the upper end, or negative infinity if the interval is empty
+    */
+    public double getUpper() {
+        return upper;
+    }
+    /**
+    * Returns true if some argument of the range may give NaN.
+    *
+    *
+    * @return true if NaN is not excluded
+    */
+    public boolean mayBeNaN() {
+        return mayBeNaN;
+    }
+    /**
+    * Returns true if the interval holds no number, that is if the result is NaN for every argument.
+    *
+    *
+    * @return true if the interval is empty
+    */
+    public boolean isEmpty() {
+        return lower > upper;
+    }
+    /**
+    * Returns true if the interval holds the given value. Zero stands for both signed zeros.
+    *
+    * @param value - the value to look for
+    *
+    * @return true if lower <= value <= upper, or if value is NaN and the interval may be NaN
+    */
+    public boolean contains(double value) {
+        return Double.isNaN(value) ? mayBeNaN : lower <= value && value <= upper;
+    }
+    /**
+    * Returns the width of the interval.
+    *
+    *
+    * @return upper minus lower rounded up, or 0 if the interval is empty
+    */
+    public double width() {
+        return isEmpty() ? 0 : Math.nextUp(upper - lower);
+    }
+    /**
+    * Adds another interval to this one.
+    *
+    * @param other - the interval to add
+    *
+    * @return an interval enclosing every sum
+    */
+    public Interval add(Interval other) {
+        boolean nan = mayBeNaN || other.mayBeNaN;
+        // Returns early if one side can only be NaN.
+        if (isEmpty() || other.isEmpty()) {
+            return NAN;
+        }
+        nan |= upper == Double.POSITIVE_INFINITY && other.lower == Double.NEGATIVE_INFINITY
+                || lower == Double.NEGATIVE_INFINITY && other.upper == Double.POSITIVE_INFINITY;
+        return bound(lower + other.lower, upper + other.upper, nan);
+    }
+    /**
+    * Subtracts another interval from this one.
+    *
+    * @param other - the interval to subtract
+    *
+    * @return an interval enclosing every difference
+    */
+    public Interval subtract(Interval other) {
+        return add(other.negate());
+    }
+    /**
+    * Multiplies this interval by another one. The product of zero and an infinity is NaN.
+    *
+    * @param other - the interval to multiply by
+    *
+    * @return an interval enclosing every product
+    */
+    public Interval multiply(Interval other) {
+        boolean nan = mayBeNaN || other.mayBeNaN;
+        // Returns early if one side can only be NaN.
+        if (isEmpty() || other.isEmpty()) {
+            return NAN;
+        }
+        nan |= contains(0) && other.isUnbounded() || other.contains(0) && isUnbounded();
+        double a = product(lower, other.lower);
+        double b = product(lower, other.upper);
+        double c = product(upper, other.lower);
+        double d = product(upper, other.upper);
+        return bound(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)), nan);
+    }
+    /**
+    * Divides this interval by another one. A divisor holding zero gives the whole line, since the sign of the zero is not known; zero divided by zero and an infinity divided by an infinity are NaN.
+    *
+    * @param other - the interval to divide by
+    *
+    * @return an interval enclosing every quotient
+    */
+    public Interval divide(Interval other) {
+        boolean nan = mayBeNaN || other.mayBeNaN;
+        // Returns early if one side can only be NaN or the divisor may be zero.
+        if (isEmpty() || other.isEmpty()) {
+            return NAN;
+        }
+        if (other.contains(0)) {
+            return new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    nan || contains(0) || isUnbounded() && other.isUnbounded());
+        }
+        double a = lower / other.lower;
+        double b = lower / other.upper;
+        double c = upper / other.lower;
+        double d = upper / other.upper;
+        if (Double.isNaN(a) || Double.isNaN(b) || Double.isNaN(c) || Double.isNaN(d)) {
+            return new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true);
+        }
+        return bound(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)), nan);
+    }
+    /**
+    * Returns the natural logarithm of the interval, as Log computes it. The negative part of the interval gives NaN.
+    *
+    *
+    * @return an interval enclosing every logarithm
+    */
+    public Interval log() {
+        boolean nan = mayBeNaN || lower < 0;
+        // Returns early if the interval holds no argument of the logarithm.
+        if (!(upper >= 0)) {
+            return NAN;
+        }
+        return bound(Math.log(Math.max(lower, 0)), Math.log(upper), nan, 2);
+    }
+    /**
+    * Raises the interval to the given power, as Polynomial computes it. Negative arguments of a power that is not an integer give NaN, except negative infinity, which Math#pow takes to positive infinity or zero.
+    *
+    * @param power - the exponent
+    *
+    * @return an interval enclosing every power
+    */
+    public Interval pow(double power) {
+        // Returns the cases that do not depend on the ends first.
+        if (power == 0) {
+            return of(1);
+        }
+        if (isEmpty() || Double.isNaN(power)) {
+            return NAN;
+        }
+        if (Double.isInfinite(power)) {
+            return UNBOUNDED;
+        }
+        if (power == Math.rint(power)) {
+            // Polynomial divides 1 by a small power and calls Math#pow for a large one, an ulp further off.
+            if (power < 0) {
+                Interval reciprocal = of(1).divide(pow(-power));
+                return power >= -Polynomial.MAX_INTEGER_POWER || reciprocal.isEmpty() ? reciprocal
+                        : bound(reciprocal.lower, reciprocal.upper, reciprocal.mayBeNaN, 1);
+            }
+            boolean small = power <= Polynomial.MAX_INTEGER_POWER;
+            // Odd powers are increasing and even powers are increasing in the magnitude.
+            if (Math.abs(power % 2) == 1) {
+                return small ? new Interval(signedPower(lower, (int) power, false), signedPower(upper, (int) power, true), mayBeNaN)
+                        : bound(Math.pow(lower, power), Math.pow(upper, power), mayBeNaN, 2);
+            }
+            double near = contains(0) ? 0 : Math.min(Math.abs(lower), Math.abs(upper));
+            double far = Math.max(Math.abs(lower), Math.abs(upper));
+            return small ? new Interval(power(near, (int) power, false), power(far, (int) power, true), mayBeNaN)
+                    : bound(Math.pow(near, power), Math.pow(far, power), mayBeNaN, 2);
+        }
+        boolean nan = mayBeNaN || lower < 0 && upper > Double.NEGATIVE_INFINITY;
+        Interval result = new Interval(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, nan);
+        if (upper >= 0) {
+            double low = Math.pow(Math.max(lower, 0), power);
+            double high = Math.pow(upper, power);
+            result = power > 0 ? bound(low, high, nan, 2) : bound(high, low, nan, 2);
+        }
+        // Math#pow takes negative infinity to positive infinity for a positive power and to zero for
+        // a negative one.
+        if (lower == Double.NEGATIVE_INFINITY) {
+            result = result.hull(of(power > 0 ? Double.POSITIVE_INFINITY : 0));
+        }
+        return result;
+    }
+    /**
+    * Returns the negated interval.
+    *
+    *
+    * @return the interval [-upper, -lower]
+    */
+    public Interval negate() {
+        return isEmpty() ? this : new Interval(-upper, -lower, mayBeNaN);
+    }
+    /**
+    * Returns the smallest interval holding this interval and another one.
+    *
+    * @param other - the interval to join with
+    *
+    * @return the hull of the two intervals
+    */
+    public Interval hull(Interval other) {
+        return new Interval(Math.min(lower, other.lower), Math.max(upper, other.upper), mayBeNaN || other.mayBeNaN);
+    }
+    /**
+    * Compares this interval with another. Two intervals are equal if they have the same ends and NaN flag.
+    *
+    * @param obj - the object to compare with
+    *
+    * @return true if the intervals are equal
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is an interval with the same ends.
+        if (obj instanceof Interval) {
+            Interval other = (Interval) obj;
+            return Double.compare(lower, other.lower) == 0 && Double.compare(upper, other.upper) == 0
+                    && mayBeNaN == other.mayBeNaN;
+        }
+        return false;
+    }
+    /**
+    * Returns a hash code computed from the ends and the NaN flag.
+    *
+    *
+    * @return the hash code of this interval
+    */
+    public int hashCode() {
+        return 31 * (31 * Double.hashCode(lower) + Double.hashCode(upper)) + Boolean.hashCode(mayBeNaN);
+    }
+    /**
+    * Returns a string representation of the interval.
+    *
+    *
+    * @return the ends in brackets, followed by " or NaN" if the interval may be NaN
+    */
+    public String toString() {
+        String range = isEmpty() ? "[]" : "[" + lower + ", " + upper + "]";
+        return mayBeNaN ? range + " or NaN" : range;
+    }
+
+    private boolean isUnbounded() {
+        return Double.isInfinite(lower) || Double.isInfinite(upper);
+    }
+
+    /**
+     * Multiplies two ends. The product of zero and an infinity stands for the products of small
+     * and large values around it, which lie between the other products and zero.
+     */
+    private static double product(double a, double b) {
+        double result = a * b;
+        return Double.isNaN(result) ? 0 : result;
+    }
+
+    /**
+     * Raises an end to a small integer power, keeping its sign, rounded down or up.
+     */
+    private static double signedPower(double end, int power, boolean up) {
+        return end < 0 ? -power(-end, power, !up) : power(Math.abs(end), power, up);
+    }
+
+    /**
+     * Raises a magnitude to a small integer power by the repeated squaring of Polynomial#pow, with
+     * every product rounded down or up. The rounding follows each step, so the result bounds both
+     * the exact power and the one Polynomial computes, whose error grows with every squaring.
+     */
+    private static double power(double magnitude, int power, boolean up) {
+        double result = 1;
+        double square = magnitude;
+        while (power > 0) {
+            if ((power & 1) != 0) {
+                result = round(result * square, up);
+            }
+            power >>= 1;
+            if (power > 0) {
+                square = round(square * square, up);
+            }
+        }
+        return result;
+    }
+
+    private static double round(double value, boolean up) {
+        return up ? Math.nextUp(value) : Math.max(Math.nextDown(value), 0);
+    }
+
+    private static Interval bound(double lower, double upper, boolean nan) {
+        return bound(lower, upper, nan, 1);
+    }
+
+    /**
+     * Moves the ends out by the given number of ulps. An end that came out NaN, from opposite
+     * infinities, stands for the whole line on its side.
+     */
+    private static Interval bound(double lower, double upper, boolean nan, int ulps) {
+        lower = Double.isNaN(lower) ? Double.NEGATIVE_INFINITY : lower;
+        upper = Double.isNaN(upper) ? Double.POSITIVE_INFINITY : upper;
+        for (int i = 0; i < ulps; i++) {
+            lower = Math.nextDown(lower);
+            upper = Math.nextUp(upper);
+        }
+        return new Interval(lower, upper, nan);
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The IntervalEvaluator class bounds the values of a Function tree over a range of arguments with
+ * interval arithmetic. The tree is flattened once into slots in post-order, so a branch-and-bound
+ * search can bound many ranges without walking the objects again. Variable and IndexedVariable
+ * nodes take the range itself; other node types are bounded by Interval#UNBOUNDED, which is
+ * always correct but never prunes anything.
+ */
+public class IntervalEvaluator {
+    private static final int VARIABLE = 0;
+    private static final int NUMBER = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int LOG = 6;
+    private static final int POLYNOMIAL = 7;
+    private static final int OTHER = 8;
+
+    private final Function function;
+    private final int[] kinds;
+    private final int[] leftSlots;
+    private final int[] rightSlots;
+    private final double[] constants;
+    public IntervalEvaluator(Function function) {
+        this.function = function;
+        List<Function> order = new ArrayList<>();
+        Map<Function, Integer> slots = new IdentityHashMap<>();
+        IterativeEngine.WorkStack work = new IterativeEngine.WorkStack(function);
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            // Assigns slots in post-order and gives a node reached through several parents one slot.
+            if (slots.containsKey(node) || !expanded && work.expand(node)) {
+                continue;
+            }
+            slots.put(node, order.size());
+            order.add(node);
+        }
+        int size = order.size();
+        this.kinds = new int[size];
+        this.leftSlots = new int[size];
+        this.rightSlots = new int[size];
+        this.constants = new double[size];
+        for (int i = 0; i < size; i++) {
+            Function node = order.get(i);
+            if (node instanceof BinaryOp) {
+                BinaryOp binaryOp = (BinaryOp) node;
+                kinds[i] = ADD + binaryOp.getOperator().ordinal();
+                leftSlots[i] = slots.get(binaryOp.getLeftOperand());
+                rightSlots[i] = slots.get(binaryOp.getRightOperand());
+            } else if (node instanceof Log) {
+                kinds[i] = LOG;
+                leftSlots[i] = slots.get(((Log) node).getOperand());
+            } else if (node instanceof Polynomial) {
+                Polynomial polynomial = (Polynomial) node;
+                kinds[i] = POLYNOMIAL;
+                leftSlots[i] = slots.get(polynomial.getOperand());
+                constants[i] = polynomial.getPower();
+            } else if (node instanceof Number) {
+                kinds[i] = NUMBER;
+                constants[i] = ((Number) node).getValue();
+            } else if (node instanceof Variable || node instanceof IndexedVariable) {
+                kinds[i] = VARIABLE;
+            } else {
+                kinds[i] = OTHER;
+            }
+        }
+    }
+    /**
+    * Bounds the function over the arguments from lower to upper.
+    *
+    * @param lower - the lower end of the range
+    * @param upper - the upper end of the range
+    *
+    * @return an interval enclosing the value of the function at every argument of the range
+    */
+    public Interval value(double lower, double upper) {
+        return value(new Interval(lower, upper));
+    }
+    /**
+    * Bounds the function over the arguments of the given interval.
+    *
+    * @param range - the range of arguments
+    *
+    * @return an interval enclosing the value of the function at every argument of the range
+    */
+    public Interval value(Interval range) {
+        Interval[] values = new Interval[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            // Bounds the node from the bounds of its operand slots.
+            switch (kinds[i]) {
+                case VARIABLE:
+                    values[i] = range;
+                    break;
+                case NUMBER:
+                    values[i] = Interval.of(constants[i]);
+                    break;
+                case ADD:
+                    values[i] = values[leftSlots[i]].add(values[rightSlots[i]]);
+                    break;
+                case SUBTRACT:
+                    values[i] = values[leftSlots[i]].subtract(values[rightSlots[i]]);
+                    break;
+                case MULTIPLY:
+                    values[i] = values[leftSlots[i]].multiply(values[rightSlots[i]]);
+                    break;
+                case DIVIDE:
+                    values[i] = values[leftSlots[i]].divide(values[rightSlots[i]]);
+                    break;
+                case LOG:
+                    values[i] = values[leftSlots[i]].log();
+                    break;
+                case POLYNOMIAL:
+                    values[i] = values[leftSlots[i]].pow(constants[i]);
+                    break;
+                case OTHER:
+                    values[i] = Interval.UNBOUNDED;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown slot kind: " + kinds[i]);
+            }
+        }
+        return values[values.length - 1];
+    }
+    /**
+    * Returns the tree this evaluator was built from.
+    *
+    *
+    * @return the source tree
+    */
+    public Function getFunction() {
+        return function;
+    }
+    /**
+    * Returns the string representation of the source tree.
+    *
+    *
+    * @return the string representation of the source tree
+    */
+    public String toString() {
+        return function.toString();
+    }
+}
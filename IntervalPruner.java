@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * The IntervalPruner class rules out parts of a domain with branch and bound over interval bounds.
+ * A box is discarded as soon as the bound of the function over it cannot satisfy the condition,
+ * for example when it excludes zero in a search for roots; otherwise it is halved, down to the
+ * given depth. A box whose bound is empty is NaN everywhere and is kept or discarded whole. The
+ * boxes that remain are merged into Regions, so a root finder, sampler or integrator can work on
+ * them and skip the rest of the domain. The halves are bounded in parallel on the common
+ * fork-join pool.
+ */
+public class IntervalPruner {
+    private static final int DEFAULT_MAX_DEPTH = 20;
+    private static final int FORK_DEPTH = 10;
+
+    private final int maxDepth;
+    public IntervalPruner() {
+        this(DEFAULT_MAX_DEPTH);
+    }
+    public IntervalPruner(int maxDepth) {
+        // Checks that the depth leaves room for the halving.
+        if (maxDepth < 0 || maxDepth > 60) {
+            throw new IllegalArgumentException("Depth must be between 0 and 60: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+    /**
+    * Finds the regions of [a, b] where the function may be zero. Outside them the function is guaranteed to have no root.
+    *
+    * @param function - the function to search
+    * @param a - the lower end of the domain. Must be finite.
+    * @param b - the upper end of the domain. Must be finite.
+    *
+    * @return the regions that may hold a root
+    */
+    public Regions roots(Function function, double a, double b) {
+        return prune(function, a, b, bound -> bound.contains(0));
+    }
+    /**
+    * Finds the regions of [a, b] where the function may be NaN. Outside them the function is guaranteed to be a number.
+    *
+    * @param function - the function to search
+    * @param a - the lower end of the domain. Must be finite.
+    * @param b - the upper end of the domain. Must be finite.
+    *
+    * @return the regions that may hold a NaN
+    */
+    public Regions nans(Function function, double a, double b) {
+        return prune(function, a, b, Interval::mayBeNaN);
+    }
+    /**
+    * Finds the regions of [a, b] whose bound may satisfy the condition. The condition must be true of the bound of a box whenever it is true of the value at some argument of the box.
+    *
+    * @param function - the function to search
+    * @param a - the lower end of the domain. Must be finite.
+    * @param b - the upper end of the domain. Must be finite.
+    * @param mayHold - the test of the bound of a box
+    *
+    * @return the regions that were not ruled out
+    */
+    public Regions prune(Function function, double a, double b, Predicate<Interval> mayHold) {
+        // Checks that the domain can be halved.
+        if (!Double.isFinite(a) || !Double.isFinite(b) || !(a < b)) {
+            throw new IllegalArgumentException("Invalid domain: [" + a + ", " + b + "]");
+        }
+        LongAdder boxes = new LongAdder();
+        List<double[]> kept = ForkJoinPool.commonPool()
+                .invoke(new PruneTask(new IntervalEvaluator(function), mayHold, boxes, a, b, 0));
+        List<double[]> merged = new ArrayList<>();
+        for (double[] box : kept) {
+            double[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            // Joins boxes that touch into one region.
+            if (last != null && last[1] == box[0]) {
+                last[1] = box[1];
+            } else {
+                merged.add(box);
+            }
+        }
+        double[] lowers = new double[merged.size()];
+        double[] uppers = new double[merged.size()];
+        for (int i = 0; i < lowers.length; i++) {
+            lowers[i] = merged.get(i)[0];
+            uppers[i] = merged.get(i)[1];
+        }
+        return new Regions(a, b, lowers, uppers, boxes.sum());
+    }
+    /**
+    * Returns the number of times a box is halved at most.
+    *
+    *
+    * @return the largest depth of the search
+    */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Bounds a box and discards it, keeps it, or halves it and searches the halves. The halves are
+     * forked near the top of the search and searched in this thread below FORK_DEPTH.
+     */
+    @SuppressWarnings("serial")
+    private final class PruneTask extends RecursiveTask<List<double[]>> {
+        private final IntervalEvaluator evaluator;
+        private final Predicate<Interval> mayHold;
+        private final LongAdder boxes;
+        private final double lower;
+        private final double upper;
+        private final int depth;
+
+        PruneTask(IntervalEvaluator evaluator, Predicate<Interval> mayHold, LongAdder boxes, double lower,
+                double upper, int depth) {
+            this.evaluator = evaluator;
+            this.mayHold = mayHold;
+            this.boxes = boxes;
+            this.lower = lower;
+            this.upper = upper;
+            this.depth = depth;
+        }
+
+        @Override
+        protected List<double[]> compute() {
+            boxes.increment();
+            List<double[]> result = new ArrayList<>();
+            Interval bound = evaluator.value(lower, upper);
+            if (!mayHold.test(bound)) {
+                return result;
+            }
+            double middle = 0.5 * (lower + upper);
+            // Keeps the box if it is NaN everywhere, since its halves would be too, or if it cannot be split any further.
+            if (bound.isEmpty() || depth >= maxDepth || middle <= lower || middle >= upper) {
+                result.add(new double[] { lower, upper });
+                return result;
+            }
+            PruneTask left = new PruneTask(evaluator, mayHold, boxes, lower, middle, depth + 1);
+            PruneTask right = new PruneTask(evaluator, mayHold, boxes, middle, upper, depth + 1);
+            if (depth < FORK_DEPTH) {
+                right.fork();
+                result = left.compute();
+                result.addAll(right.join());
+            } else {
+                result = left.compute();
+                result.addAll(right.compute());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The IterativeEngine class evaluates, differentiates and prints Function trees with an explicit
+ * work stack instead of recursion, so trees of any depth can be handled without overflowing the
+ * thread stack. The results are the same as those of value, derivative and toString on the nodes.
+ * A node reached through several parents, as in derivative trees that reuse their operands, is
+ * evaluated and differentiated once, so the work is linear in the number of node objects.
+ */
+public final class IterativeEngine {
+    private IterativeEngine() {
+    }
+    /**
+    * Evaluates the function at the given argument without recursion.
+    *
+    * @param function - the function to evaluate
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public static double value(Function function, double x) {
+        WorkStack work = new WorkStack(function);
+        ValueMemo memo = new ValueMemo();
+        double[] values = new double[16];
+        int size = 0;
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            int index = expanded || !hasOperands(node) ? -1 : memo.find(node);
+            double result;
+            // Reuses the value of a node reached before, or pushes the operands first and combines
+            // their values once they are on the value stack.
+            if (index >= 0) {
+                result = memo.value(index);
+            } else if (!expanded && work.expand(node)) {
+                continue;
+            } else if (node instanceof BinaryOp) {
+                double right = values[--size];
+                double left = values[--size];
+                result = BinaryOp.apply(((BinaryOp) node).getOperator(), left, right);
+            } else if (node instanceof Log) {
+                result = Math.log(values[--size]);
+            } else if (node instanceof Polynomial) {
+                result = Polynomial.pow(values[--size], ((Polynomial) node).getPower());
+            } else {
+                result = node.value(x);
+            }
+            if (expanded) {
+                memo.put(node, result);
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = result;
+        }
+        return values[0];
+    }
+    /**
+    * Returns the derivative of the function without recursion. The result is structurally equal to function.derivative ().
+    *
+    * @param function - the function to differentiate
+    *
+    * @return the derivative of the function
+    */
+    public static Function derivative(Function function) {
+        WorkStack work = new WorkStack(function);
+        Map<Function, Function> memo = new IdentityHashMap<>();
+        Function[] derivatives = new Function[16];
+        int size = 0;
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            Function shared = expanded ? null : memo.get(node);
+            Function result;
+            // Reuses the derivative of a node reached before, or pushes the operands first and
+            // combines their derivatives once they are on the result stack.
+            if (shared != null) {
+                result = shared;
+            } else if (!expanded && work.expand(node)) {
+                continue;
+            } else if (node instanceof BinaryOp) {
+                Function rightDerivative = derivatives[--size];
+                Function leftDerivative = derivatives[--size];
+                result = binaryOpDerivative((BinaryOp) node, leftDerivative, rightDerivative);
+            } else if (node instanceof Log) {
+                result = new BinaryOp(Operator.DIVIDE, derivatives[--size], ((Log) node).getOperand());
+            } else if (node instanceof Polynomial) {
+                Polynomial polynomial = (Polynomial) node;
+                result = new BinaryOp(Operator.MULTIPLY,
+                        new Number(polynomial.getPower()),
+                        new BinaryOp(Operator.MULTIPLY,
+                                new Polynomial(polynomial.getOperand(), polynomial.getPower() - 1),
+                                derivatives[--size]));
+            } else {
+                result = node.derivative();
+            }
+            if (expanded) {
+                memo.put(node, result);
+            }
+            if (size == derivatives.length) {
+                derivatives = Arrays.copyOf(derivatives, size * 2);
+            }
+            derivatives[size++] = result;
+        }
+        return derivatives[0];
+    }
+    /**
+    * Writes the string representation of the function to the given output without recursion and without building intermediate strings. The text is the same as function.toString ().
+    *
+    * @param function - the function to print
+    * @param out - the output receiving the text
+    */
+    public static void print(Function function, Appendable out) {
+        Object[] stack = new Object[16];
+        boolean[] suffix = new boolean[16];
+        int size = 0;
+        stack[size++] = function;
+        try {
+            while (size > 0) {
+                Object item = stack[--size];
+                boolean isSuffix = suffix[size];
+                stack[size] = null;
+                suffix[size] = false;
+                // Writes text directly and replaces nodes by their parts in reverse order.
+                if (item instanceof String) {
+                    out.append((String) item);
+                    continue;
+                }
+                if (isSuffix) {
+                    appendSuffix(item, out);
+                    continue;
+                }
+                if (size + 7 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    suffix = Arrays.copyOf(suffix, stack.length);
+                }
+                if (item instanceof BinaryOp) {
+                    BinaryOp binaryOp = (BinaryOp) item;
+                    Function left = binaryOp.getLeftOperand();
+                    Function right = binaryOp.getRightOperand();
+                    boolean parenthesizeLeft = left instanceof BinaryOp
+                            && ((BinaryOp) left).getOperator() != binaryOp.getOperator();
+                    boolean parenthesizeRight = right instanceof BinaryOp
+                            && ((BinaryOp) right).getOperator() != binaryOp.getOperator()
+                            && ((BinaryOp) right).getOperator() != Operator.ADD;
+                    if (parenthesizeRight) {
+                        stack[size++] = ")";
+                    }
+                    stack[size++] = right;
+                    if (parenthesizeRight) {
+                        stack[size++] = "(";
+                    }
+                    suffix[size] = true;
+                    stack[size++] = binaryOp;
+                    if (parenthesizeLeft) {
+                        stack[size++] = ")";
+                    }
+                    stack[size++] = left;
+                    if (parenthesizeLeft) {
+                        stack[size++] = "(";
+                    }
+                } else if (item instanceof Log) {
+                    Function operand = ((Log) item).getOperand();
+                    boolean parenthesize = operand instanceof BinaryOp;
+                    stack[size++] = parenthesize ? ")]" : "]";
+                    stack[size++] = operand;
+                    stack[size++] = parenthesize ? "Exp[(" : "Exp[";
+                } else if (item instanceof Polynomial) {
+                    Polynomial polynomial = (Polynomial) item;
+                    Function operand = polynomial.getOperand();
+                    boolean parenthesize = operand instanceof BinaryOp;
+                    suffix[size] = true;
+                    stack[size++] = polynomial;
+                    if (parenthesize) {
+                        stack[size++] = ")";
+                    }
+                    stack[size++] = operand;
+                    if (parenthesize) {
+                        stack[size++] = "(";
+                    }
+                } else if (item instanceof Number) {
+                    appendDouble(((Number) item).getValue(), out);
+                } else {
+                    out.append(item.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+    * Returns the string representation of the function, built without recursion.
+    *
+    * @param function - the function to print
+    *
+    * @return the same text as function.toString ()
+    */
+    public static String toString(Function function) {
+        StringBuilder builder = new StringBuilder();
+        print(function, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes the text that follows the operands of a node: the operator of a BinaryOp or the
+     * exponent of a Polynomial.
+     */
+    private static void appendSuffix(Object node, Appendable out) throws IOException {
+        if (node instanceof BinaryOp) {
+            out.append(' ').append(((BinaryOp) node).operatorToString()).append(' ');
+        } else {
+            out.append(" ^");
+            appendDouble(((Polynomial) node).getPower(), out);
+        }
+    }
+
+    /**
+     * Writes the value as Double#toString does, without building a string if the output is a
+     * StringBuilder.
+     */
+    private static void appendDouble(double value, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+        } else {
+            out.append(Double.toString(value));
+        }
+    }
+
+    private static Function binaryOpDerivative(BinaryOp binaryOp, Function leftDerivative, Function rightDerivative) {
+        Function leftOperand = binaryOp.getLeftOperand();
+        Function rightOperand = binaryOp.getRightOperand();
+        // Applies the same rules as BinaryOp#derivative.
+        switch (binaryOp.getOperator()) {
+            case ADD:
+                return new BinaryOp(Operator.ADD, leftDerivative, rightDerivative);
+            case SUBTRACT:
+                return new BinaryOp(Operator.SUBTRACT, leftDerivative, rightDerivative);
+            case MULTIPLY:
+                return new BinaryOp(Operator.ADD,
+                        new BinaryOp(Operator.MULTIPLY, leftOperand, rightDerivative),
+                        new BinaryOp(Operator.MULTIPLY, leftDerivative, rightOperand));
+            case DIVIDE:
+                return new BinaryOp(Operator.DIVIDE,
+                        new BinaryOp(Operator.SUBTRACT,
+                                new BinaryOp(Operator.MULTIPLY, leftDerivative, rightOperand),
+                                new BinaryOp(Operator.MULTIPLY, leftOperand, rightDerivative)),
+                        new BinaryOp(Operator.MULTIPLY, rightOperand, rightOperand));
+            default:
+                throw new UnsupportedOperationException("Unsupported operator: " + binaryOp.getOperator());
+        }
+    }
+
+    private static boolean hasOperands(Function node) {
+        return node instanceof BinaryOp || node instanceof Log || node instanceof Polynomial;
+    }
+
+    /**
+     * An identity map from nodes to their values with open addressing, so that looking up a node
+     * does not box its value.
+     */
+    private static final class ValueMemo {
+        private Function[] keys = new Function[64];
+        private double[] values = new double[64];
+        private int size;
+
+        /**
+         * Returns the slot of the node, or -1 if it has no value yet.
+         */
+        int find(Function node) {
+            int slot = slot(keys, node);
+            return keys[slot] == null ? -1 : slot;
+        }
+
+        double value(int slot) {
+            return values[slot];
+        }
+
+        void put(Function node, double value) {
+            if (2 * (size + 1) > keys.length) {
+                Function[] oldKeys = keys;
+                double[] oldValues = values;
+                keys = new Function[oldKeys.length * 2];
+                values = new double[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        int slot = slot(keys, oldKeys[i]);
+                        keys[slot] = oldKeys[i];
+                        values[slot] = oldValues[i];
+                    }
+                }
+            }
+            int slot = slot(keys, node);
+            if (keys[slot] == null) {
+                keys[slot] = node;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        /**
+         * Returns the slot holding the node, or the free slot where it belongs.
+         */
+        private static int slot(Function[] keys, Function node) {
+            int mask = keys.length - 1;
+            int hash = System.identityHashCode(node) * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != null && keys[slot] != node) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * A stack of nodes that remembers whether the operands of each node were pushed already.
+     */
+    static final class WorkStack {
+        private Function[] nodes = new Function[16];
+        private boolean[] expanded = new boolean[16];
+        private int size;
+
+        WorkStack(Function root) {
+            push(root, false);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean topExpanded() {
+            return expanded[size - 1];
+        }
+
+        Function pop() {
+            Function node = nodes[--size];
+            nodes[size] = null;
+            return node;
+        }
+
+        /**
+         * Pushes the node back as expanded followed by its operands, left operand on top, and
+         * returns false if the node has no operands.
+         */
+        boolean expand(Function node) {
+            if (node instanceof BinaryOp) {
+                BinaryOp binaryOp = (BinaryOp) node;
+                push(node, true);
+                push(binaryOp.getRightOperand(), false);
+                push(binaryOp.getLeftOperand(), false);
+                return true;
+            }
+            if (node instanceof Log) {
+                push(node, true);
+                push(((Log) node).getOperand(), false);
+                return true;
+            }
+            if (node instanceof Polynomial) {
+                push(node, true);
+                push(((Polynomial) node).getOperand(), false);
+                return true;
+            }
+            return false;
+        }
+
+        private void push(Function node, boolean isExpanded) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                expanded = Arrays.copyOf(expanded, size * 2);
+            }
+            nodes[size] = node;
+            expanded[size] = isExpanded;
+            size++;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 public class Log implements Function {
-    private Function operand;
+    private final Function operand;
+    private int hash;
     public Log(Function operand) {
         this.operand = operand;
     }
@@ -14,6 +15,21 @@ public class Log implements Function {
         return Math.log(operand.value(x));
     }
     /**
+    * Evaluates this function over a block of arguments. The operand is evaluated into out and the logarithm is then taken in place.
+    * 
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        operand.value(xs, from, out, outFrom, length);
+        for (int i = outFrom; i < outFrom + length; i++) {
+            out[i] = Math.log(out[i]);
+        }
+    }
+    /**
     * Returns the derivative of this function. The derivative is computed as follows : x / y where x and y are the operands.
     * 
     * 
@@ -40,12 +56,7 @@ public class Log implements Function {
     * @return a string representation of this expression in human readable form e. g. exp ( x ) where x is a
     */
     public String toString() {
-        String operandString = operand.toString();
-        // Append the operand to the operandString.
-        if (operand instanceof BinaryOp) {
-            operandString = "(" + operandString + ")";
-        }
-        return "Exp[" + operandString + "]";
+        return IterativeEngine.toString(this);
     }
     /**
     * Returns true if this Log is equal to the specified object. Two Log objects are equal if they have the same operand and are equal according to Log#equals ( Object )
@@ -56,10 +67,28 @@ public class Log implements Function {
     */
     public boolean equals(Object obj) {
         // Returns true if the object is a Log object.
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Log) {
             Log other = (Log) obj;
-            return operand.equals(other.operand);
+            return hashCode() == other.hashCode() && operand.equals(other.operand);
         }
         return false;
     }
+    /**
+    * Returns a hash code computed from the structure of this Log. Structurally equal trees have equal hash codes. The hash is computed once and cached.
+    * 
+    * 
+    * @return the structural hash code of this Log
+    */
+    public int hashCode() {
+        int result = hash;
+        // Computes the hash on first use.
+        if (result == 0) {
+            result = 31 * operand.hashCode() + 7;
+            hash = result;
+        }
+        return result;
+    }
 }
\ No newline at end of file
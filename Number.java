@@ -1,9 +1,11 @@
+import java.util.Arrays;
+
 /**
  * The Number class represents a mathematical constant value and provides methods for evaluating its
  * value and derivative.
  */
 public class Number implements Function {
-    private double value;
+    private final double value;
     public Number(double value) {
         this.value = value;
     }
@@ -18,6 +20,18 @@ public class Number implements Function {
         return value;
     }
     /**
+    * Fills a block of values with this constant.
+    * 
+    * @param xs - the arguments, which are ignored
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of values to store
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        Arrays.fill(out, outFrom, outFrom + length, value);
+    }
+    /**
     * Returns the derivative of this function. This is equivalent to the following code : function. derivative ().
     * 
     * 
@@ -27,6 +41,15 @@ public class Number implements Function {
         return new Number(0);
     }
     /**
+    * Returns the constant held by this number.
+    * 
+    * 
+    * @return the constant value of this number
+    */
+    public double getValue() {
+        return value;
+    }
+    /**
     * Returns a String representation of this object. The result is suitable for use in debugging or other purposes as a log message.
     * 
     * 
@@ -50,4 +73,14 @@ public class Number implements Function {
         }
         return false;
     }
+    /**
+    * Returns a hash code for this number. Numbers that are equal according to #equals ( Object ) have equal hash codes.
+    * 
+    * 
+    * @return the hash code of the value of this number
+    */
+    public int hashCode() {
+        // Adding 0.0 maps -0.0 to 0.0, which equals treats as the same value.
+        return Double.hashCode(value + 0.0);
+    }
 }
\ No newline at end of file
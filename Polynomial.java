@@ -7,8 +7,10 @@
  */
 
 public class Polynomial implements Function {
-    private Function operand;
-    private double power;
+    static final int MAX_INTEGER_POWER = 32;
+    private final Function operand;
+    private final double power;
+    private int hash;
     public Polynomial(Function operand, double power) {
         this.operand = operand;
         this.power = power;
@@ -21,7 +23,49 @@ public class Polynomial implements Function {
     * @return the value of the function at the given value as a double with the same sign as the power of
     */
     public double value(double x) {
-        return Math.pow(operand.value(x), power);
+        return pow(operand.value(x), power);
+    }
+    /**
+    * Raises the base to the power. Integer powers up to MAX_INTEGER_POWER in magnitude are computed by repeated squaring instead of Math#pow ( double double ).
+    * 
+    * @param base - the base of the power
+    * @param power - the exponent
+    * 
+    * @return base raised to power
+    */
+    static double pow(double base, double power) {
+        // Multiplies out small integer powers.
+        if (power == (int) power && Math.abs(power) <= MAX_INTEGER_POWER) {
+            int remaining = Math.abs((int) power);
+            double result = 1;
+            double square = base;
+            while (remaining > 0) {
+                if ((remaining & 1) != 0) {
+                    result *= square;
+                }
+                remaining >>= 1;
+                if (remaining > 0) {
+                    square *= square;
+                }
+            }
+            return power < 0 ? 1 / result : result;
+        }
+        return Math.pow(base, power);
+    }
+    /**
+    * Evaluates the function over a block of arguments. The operand is evaluated into out and raised to the power in place.
+    * 
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        operand.value(xs, from, out, outFrom, length);
+        for (int i = outFrom; i < outFrom + length; i++) {
+            out[i] = pow(out[i], power);
+        }
     }
     /**
     * Returns the derivative of this function. The derivative is defined as the multiplication of the number and the polynomial with the power of the operand minus one.
@@ -62,12 +106,7 @@ public class Polynomial implements Function {
     * @return a string representation of this Operand and its operand in human readable form e. g. " Not Equal to
     */
     public String toString() {
-        String operandString = operand.toString();
-        // Append the operand to the operandString.
-        if (operand instanceof BinaryOp) {
-            operandString = "(" + operandString + ")";
-        }
-        return operandString + " ^" + power;
+        return IterativeEngine.toString(this);
     }
     /**
     * Compares this polynomial with another. Two polynomials are equal if they have the same exponent and operand.
@@ -78,10 +117,28 @@ public class Polynomial implements Function {
     */
     public boolean equals(Object obj) {
         // Returns true if the object is a polynomial.
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Polynomial) {
             Polynomial other = (Polynomial) obj;
-            return power == other.power && operand.equals(other.operand);
+            return power == other.power && hashCode() == other.hashCode() && operand.equals(other.operand);
         }
         return false;
     }
+    /**
+    * Returns a hash code computed from the structure of this polynomial. Structurally equal trees have equal hash codes. The hash is computed once and cached.
+    * 
+    * 
+    * @return the structural hash code of this polynomial
+    */
+    public int hashCode() {
+        int result = hash;
+        // Computes the hash on first use; adding 0.0 maps -0.0 to 0.0 as equals does.
+        if (result == 0) {
+            result = 31 * operand.hashCode() + Double.hashCode(power + 0.0);
+            hash = result;
+        }
+        return result;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * The Regions class holds the result of a branch-and-bound search of IntervalPruner: the sorted,
+ * disjoint subranges of the domain that could not be ruled out, and the work spent on them. Every
+ * argument of the domain outside the regions is guaranteed not to have the property searched for.
+ */
+public final class Regions {
+    private final double domainLower;
+    private final double domainUpper;
+    private final double[] lowers;
+    private final double[] uppers;
+    private final long boxes;
+    public Regions(double domainLower, double domainUpper, double[] lowers, double[] uppers, long boxes) {
+        // Checks that every region has both ends.
+        if (lowers.length != uppers.length) {
+            throw new IllegalArgumentException("Ends do not match: " + lowers.length + " lower, " + uppers.length + " upper");
+        }
+        this.domainLower = domainLower;
+        this.domainUpper = domainUpper;
+        this.lowers = lowers;
+        this.uppers = uppers;
+        this.boxes = boxes;
+    }
+    /**
+    * Returns the number of regions.
+    *
+    *
+    * @return the number of disjoint subranges that were kept
+    */
+    public int size() {
+        return lowers.length;
+    }
+    /**
+    * Returns the lower end of the region with the given index.
+    *
+    * @param index - the index of the region, in increasing order of the arguments
+    *
+    * @return the lower end of the region
+    */
+    public double getLower(int index) {
+        return lowers[index];
+    }
+    /**
+    * Returns the upper end of the region with the given index.
+    *
+    * @param index - the index of the region, in increasing order of the arguments
+    *
+    * @return the upper end of the region
+    */
+    public double getUpper(int index) {
+        return uppers[index];
+    }
+    /**
+    * Returns true if the argument lies in one of the regions.
+    *
+    * @param x - the argument to look up
+    *
+    * @return true if x was not ruled out
+    */
+    public boolean contains(double x) {
+        int index = Arrays.binarySearch(lowers, x);
+        // Returns true if x is a lower end or lies before the upper end of the region it follows.
+        if (index >= 0) {
+            return true;
+        }
+        index = -index - 2;
+        return index >= 0 && x <= uppers[index];
+    }
+    /**
+    * Returns the total length of the regions.
+    *
+    *
+    * @return the sum of the lengths of the regions
+    */
+    public double getMeasure() {
+        double measure = 0;
+        for (int i = 0; i < lowers.length; i++) {
+            measure += uppers[i] - lowers[i];
+        }
+        return measure;
+    }
+    /**
+    * Returns the part of the domain that was kept.
+    *
+    *
+    * @return the total length of the regions divided by the length of the domain
+    */
+    public double getFraction() {
+        return getMeasure() / (domainUpper - domainLower);
+    }
+    /**
+    * Returns the number of boxes whose bounds were computed during the search.
+    *
+    *
+    * @return the number of interval evaluations
+    */
+    public long getBoxes() {
+        return boxes;
+    }
+    /**
+    * Returns a string representation of the regions.
+    *
+    *
+    * @return the regions in brackets, followed by the kept fraction of the domain
+    */
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Regions[");
+        for (int i = 0; i < lowers.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append('[').append(lowers[i]).append(", ").append(uppers[i]).append(']');
+        }
+        return builder.append("; fraction=").append(getFraction()).append(", boxes=").append(boxes).append(']').toString();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * The Root class holds the result of a root search: the last argument reached, the value of the
+ * function there, the number of iterations and how the search ended.
+ */
+public final class Root {
+    /**
+     * How a root search ended.
+     */
+    public enum Status {
+        /** The step or the value fell below the tolerance. */
+        CONVERGED,
+        /** The function has the same sign at both ends of the bracket. */
+        NO_SIGN_CHANGE,
+        /** The function or its derivative became NaN or infinite and the search could not go on. */
+        NOT_FINITE,
+        /** The search used all its iterations without converging. */
+        MAX_ITERATIONS
+    }
+
+    private final double x;
+    private final double value;
+    private final int iterations;
+    private final Status status;
+    public Root(double x, double value, int iterations, Status status) {
+        this.x = x;
+        this.value = value;
+        this.iterations = iterations;
+        this.status = status;
+    }
+    /**
+    * Returns the last argument reached by the search. This is the root if the search converged.
+    *
+    *
+    * @return the argument where the search ended
+    */
+    public double getX() {
+        return x;
+    }
+    /**
+    * Returns the value of the function at #getX ().
+    *
+    *
+    * @return the value of the function where the search ended
+    */
+    public double getValue() {
+        return value;
+    }
+    /**
+    * Returns the number of iterations, that is the number of evaluations of the function and its derivative.
+    *
+    *
+    * @return the number of iterations of the search
+    */
+    public int getIterations() {
+        return iterations;
+    }
+    /**
+    * Returns how the search ended.
+    *
+    *
+    * @return the status of the search
+    */
+    public Status getStatus() {
+        return status;
+    }
+    /**
+    * Returns true if the search converged.
+    *
+    *
+    * @return true if the status is CONVERGED
+    */
+    public boolean isConverged() {
+        return status == Status.CONVERGED;
+    }
+    /**
+    * Returns the string representation of the root.
+    *
+    *
+    * @return the status, argument, value and iterations in human readable form
+    */
+    public String toString() {
+        return status + " at x = " + x + " (value " + value + ", " + iterations + " iterations)";
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The RootBatch class holds the roots found by one batch of searches together with statistics
+ * over the batch: how many searches ended with each status, and how many iterations they took.
+ */
+public final class RootBatch {
+    private final Root[] roots;
+    private final int[] counts = new int[Root.Status.values().length];
+    private final long totalIterations;
+    private final int maxIterations;
+    private final long elapsedNanos;
+    RootBatch(Root[] roots, long elapsedNanos) {
+        this.roots = roots;
+        this.elapsedNanos = elapsedNanos;
+        long total = 0;
+        int max = 0;
+        for (Root root : roots) {
+            counts[root.getStatus().ordinal()]++;
+            total += root.getIterations();
+            max = Math.max(max, root.getIterations());
+        }
+        this.totalIterations = total;
+        this.maxIterations = max;
+    }
+    /**
+    * Returns the result of the search with the given index, in the order of the inputs of the batch.
+    *
+    * @param index - the index of the search
+    *
+    * @return the root found by the search
+    */
+    public Root get(int index) {
+        return roots[index];
+    }
+    /**
+    * Returns the number of searches in the batch.
+    *
+    *
+    * @return the size of the batch
+    */
+    public int size() {
+        return roots.length;
+    }
+    /**
+    * Returns the number of searches that ended with the given status.
+    *
+    * @param status - the status to count
+    *
+    * @return the number of searches with that status
+    */
+    public int count(Root.Status status) {
+        return counts[status.ordinal()];
+    }
+    /**
+    * Returns the number of iterations over all searches of the batch.
+    *
+    *
+    * @return the total number of iterations
+    */
+    public long getTotalIterations() {
+        return totalIterations;
+    }
+    /**
+    * Returns the largest number of iterations taken by one search.
+    *
+    *
+    * @return the maximum number of iterations
+    */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+    /**
+    * Returns the mean number of iterations per search.
+    *
+    *
+    * @return the mean number of iterations, or 0 for an empty batch
+    */
+    public double getMeanIterations() {
+        return roots.length == 0 ? 0 : (double) totalIterations / roots.length;
+    }
+    /**
+    * Returns the wall-clock time taken by the batch.
+    *
+    *
+    * @return the elapsed time in nanoseconds
+    */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    /**
+    * Returns a summary of the batch.
+    *
+    *
+    * @return the size, status counts and iteration statistics in human readable form
+    */
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RootBatch[size=").append(roots.length);
+        for (Root.Status status : Root.Status.values()) {
+            builder.append(", ").append(status).append('=').append(count(status));
+        }
+        return builder.append(", meanIterations=").append(getMeanIterations())
+                .append(", maxIterations=").append(maxIterations)
+                .append(", elapsedMillis=").append(elapsedNanos / 1000000).append(']').toString();
+    }
+}
@@ -0,0 +1,267 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * The RootFinder class finds zeros of Function trees with Newton's method safeguarded by
+ * bisection. The value and the slope are computed together in one pass over the tree, so the
+ * derivative tree is never built for the node types of this library. A search never evaluates
+ * past its iteration budget: NaN and infinite values make it bisect, backtrack or stop with a
+ * status instead of looping. Batches of searches run on the common fork-join pool.
+ */
+public class RootFinder {
+    private static final double DEFAULT_TOLERANCE = 1e-12;
+    private static final int DEFAULT_MAX_ITERATIONS = 100;
+    private static final int THRESHOLD = 64;
+
+    private final double tolerance;
+    private final int maxIterations;
+    public RootFinder() {
+        this(DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+    public RootFinder(double tolerance, int maxIterations) {
+        // Checks that the search can converge and terminates.
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("Iterations must be positive: " + maxIterations);
+        }
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+    /**
+    * Finds a zero of the function in the bracket [lower, upper], where the function must change sign. Newton steps are taken while they stay inside the bracket and shrink it fast enough; otherwise the bracket is bisected. A point where the function is NaN is left halfway towards one end of the bracket, and towards the other end if the function is NaN up to the first; the ends are tried first in turn.
+    *
+    * @param function - the function to solve
+    * @param lower - the lower end of the bracket
+    * @param upper - the upper end of the bracket
+    *
+    * @return the root, or the point where the search stopped with the reason
+    */
+    public Root solve(Function function, double lower, double upper) {
+        return bracketed(new Slope(function), Math.min(lower, upper), Math.max(lower, upper), 0);
+    }
+    /**
+    * Finds a zero of the function with Newton's method from the given starting point. Once two iterates have values of opposite signs, the search continues in that bracket as #solve ( Function , double , double ) does. A step landing where the function is not finite is halved back towards the last finite point.
+    *
+    * @param function - the function to solve
+    * @param start - the starting point
+    *
+    * @return the root, or the point where the search stopped with the reason
+    */
+    public Root solve(Function function, double start) {
+        return newton(new Slope(function), start);
+    }
+    /**
+    * Finds a zero of the function from every starting point, in parallel.
+    *
+    * @param function - the function to solve
+    * @param starts - the starting points
+    *
+    * @return the roots in the order of the starting points, with statistics over the batch
+    */
+    public RootBatch solveAll(Function function, double[] starts) {
+        Slope slope = new Slope(function);
+        return solveAll(starts.length, i -> newton(slope, starts[i]));
+    }
+    /**
+    * Finds a zero of every function in the same bracket, in parallel.
+    *
+    * @param functions - the functions to solve
+    * @param lower - the lower end of the bracket
+    * @param upper - the upper end of the bracket
+    *
+    * @return the roots in the order of the functions, with statistics over the batch
+    */
+    public RootBatch solveAll(Function[] functions, double lower, double upper) {
+        return solveAll(functions.length, i -> solve(functions[i], lower, upper));
+    }
+
+    private RootBatch solveAll(int size, IntFunction<Root> search) {
+        long start = System.nanoTime();
+        Root[] roots = new Root[size];
+        ForkJoinPool.commonPool().invoke(new SolveTask(search, roots, 0, size));
+        return new RootBatch(roots, System.nanoTime() - start);
+    }
+
+    private Root bracketed(Slope function, double lower, double upper, int iterations) {
+        double lowerValue = function.value(lower);
+        double upperValue = function.value(upper);
+        // Returns early if an end is a root or the bracket does not hold a sign change.
+        if (lowerValue == 0 || upperValue == 0) {
+            return lowerValue == 0 ? new Root(lower, 0, iterations, Root.Status.CONVERGED)
+                    : new Root(upper, 0, iterations, Root.Status.CONVERGED);
+        }
+        if (Double.isNaN(lowerValue) || Double.isNaN(upperValue)) {
+            return Double.isNaN(lowerValue) ? new Root(lower, lowerValue, iterations, Root.Status.NOT_FINITE)
+                    : new Root(upper, upperValue, iterations, Root.Status.NOT_FINITE);
+        }
+        if (lowerValue < 0 == upperValue < 0) {
+            return new Root(lower, lowerValue, iterations, Root.Status.NO_SIGN_CHANGE);
+        }
+        double negative = lowerValue < 0 ? lower : upper;
+        double positive = lowerValue < 0 ? upper : lower;
+        double x = 0.5 * (lower + upper);
+        double step = upper - lower;
+        double lastStep = step;
+        double blocked = Double.NaN;
+        double target = Double.NaN;
+        boolean upwards = false;
+        double[] slope = new double[1];
+        while (iterations < maxIterations) {
+            double value = function.value(x, slope);
+            iterations++;
+            if (value == 0) {
+                return new Root(x, value, iterations, Root.Status.CONVERGED);
+            }
+            // Moves halfway towards one end of the bracket from a NaN point, and towards the other end
+            // from the first NaN point once the values are NaN all the way. The first end alternates
+            // between runs of NaN points, so both sides of a NaN region are searched.
+            if (Double.isNaN(value)) {
+                double low = Math.min(negative, positive);
+                double high = Math.max(negative, positive);
+                if (Double.isNaN(blocked)) {
+                    blocked = x;
+                    upwards = !upwards;
+                    target = upwards ? high : low;
+                }
+                double next = 0.5 * (x + target);
+                if (Math.abs(target - next) <= tolerance * (1 + Math.abs(next))) {
+                    double other = upwards ? low : high;
+                    if (target == other) {
+                        return new Root(x, value, iterations, Root.Status.NOT_FINITE);
+                    }
+                    target = other;
+                    next = 0.5 * (blocked + target);
+                }
+                lastStep = step;
+                step = next - x;
+                x = next;
+                continue;
+            }
+            blocked = Double.NaN;
+            if (value < 0) {
+                negative = x;
+            } else {
+                positive = x;
+            }
+            double next = x - value / slope[0];
+            // Takes the Newton step if it stays in the bracket and at least halves the step before last.
+            if ((next - negative) * (next - positive) < 0 && Math.abs(2 * value) <= Math.abs(lastStep * slope[0])) {
+                lastStep = step;
+                step = next - x;
+                x = next;
+            } else {
+                lastStep = step;
+                step = 0.5 * (positive - negative);
+                x = negative + step;
+            }
+            if (Math.abs(step) <= tolerance * (1 + Math.abs(x)) || Math.abs(positive - negative) <= tolerance * (1 + Math.abs(x))) {
+                return new Root(x, function.value(x), iterations, Root.Status.CONVERGED);
+            }
+        }
+        return new Root(x, function.value(x), iterations, Root.Status.MAX_ITERATIONS);
+    }
+
+    private Root newton(Slope function, double start) {
+        double x = start;
+        double last = Double.NaN;
+        double lastValue = Double.NaN;
+        double step = 0;
+        double[] slope = new double[1];
+        int iterations = 0;
+        while (iterations < maxIterations) {
+            double value = function.value(x, slope);
+            iterations++;
+            // Backtracks towards the last finite point if the function is not finite here.
+            if (!Double.isFinite(value) || !Double.isFinite(slope[0])) {
+                step *= 0.5;
+                if (Double.isNaN(last) || Math.abs(step) <= tolerance * (1 + Math.abs(last))) {
+                    return Double.isNaN(last) ? new Root(x, value, iterations, Root.Status.NOT_FINITE)
+                            : new Root(last, lastValue, iterations, Root.Status.NOT_FINITE);
+                }
+                x = last + step;
+                continue;
+            }
+            if (value == 0) {
+                return new Root(x, value, iterations, Root.Status.CONVERGED);
+            }
+            // Continues with the safeguarded search once the root is bracketed.
+            if (!Double.isNaN(last) && value < 0 != lastValue < 0) {
+                return bracketed(function, Math.min(last, x), Math.max(last, x), iterations);
+            }
+            step = -value / slope[0];
+            if (!Double.isFinite(step)) {
+                return new Root(x, value, iterations, Root.Status.NOT_FINITE);
+            }
+            last = x;
+            lastValue = value;
+            x += step;
+            if (Math.abs(step) <= tolerance * (1 + Math.abs(x))) {
+                return new Root(x, function.value(x), iterations, Root.Status.CONVERGED);
+            }
+        }
+        return new Root(x, function.value(x), iterations, Root.Status.MAX_ITERATIONS);
+    }
+
+    /**
+     * Evaluates a function together with its slope. Trees of the library nodes go through
+     * ForwardMode; other functions are differentiated once up front.
+     */
+    private static final class Slope {
+        private final Function function;
+        private final Function derivative;
+
+        Slope(Function function) {
+            this.function = function;
+            boolean node = function instanceof BinaryOp || function instanceof Log || function instanceof Polynomial
+                    || function instanceof Number || function instanceof Variable;
+            this.derivative = node ? null : function.derivative();
+        }
+
+        double value(double x) {
+            return function.value(x);
+        }
+
+        double value(double x, double[] slope) {
+            if (derivative != null) {
+                slope[0] = derivative.value(x);
+                return function.value(x);
+            }
+            Dual dual = ForwardMode.valueAndDerivative(function, x);
+            slope[0] = dual.getDerivative();
+            return dual.getValue();
+        }
+    }
+
+    /**
+     * Runs the searches of a range of indices, splitting the range in halves while it is large.
+     */
+    @SuppressWarnings("serial")
+    private static final class SolveTask extends RecursiveAction {
+        private final IntFunction<Root> search;
+        private final Root[] roots;
+        private final int from;
+        private final int to;
+
+        SolveTask(IntFunction<Root> search, Root[] roots, int from, int to) {
+            this.search = search;
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SolveTask(search, roots, from, middle), new SolveTask(search, roots, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                roots[i] = search.apply(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The Sampler class tabulates a Function, and optionally its derivative, over a grid or an array
+ * of arguments on a fork-join pool. The grid point i is always a + i * h, and every task writes
+ * only its own range of the output, so the results do not depend on how the work is split or on
+ * the number of threads.
+ */
+public final class Sampler {
+    /**
+     * The number of points below which a task evaluates its range instead of splitting it.
+     */
+    static final int THRESHOLD = 8 * Function.CHUNK_SIZE;
+    /**
+     * The number of doubles in one memory mapping of a table file, 1 GiB.
+     */
+    static final int WINDOW_SIZE = 1 << 27;
+
+    private Sampler() {
+    }
+    /**
+    * Returns the number of grid points in [a, b] with step h, that is the points a + i * h that do not exceed b.
+    *
+    * @param a - the first grid point
+    * @param b - the end of the range
+    * @param h - the step between grid points. Must be positive.
+    *
+    * @return the number of grid points
+    */
+    public static long count(double a, double b, double h) {
+        // Checks that the grid is well defined.
+        if (!(h > 0) || !(b >= a) || Double.isInfinite(b - a)) {
+            throw new IllegalArgumentException("Invalid grid: [" + a + ", " + b + "] with step " + h);
+        }
+        long count = (long) Math.floor((b - a) / h) + 1;
+        return a + (count - 1) * h > b ? count - 1 : count;
+    }
+    /**
+    * Evaluates the function at every grid point in [a, b] with step h.
+    *
+    * @param function - the function to evaluate
+    * @param a - the first grid point
+    * @param b - the end of the range
+    * @param h - the step between grid points. Must be positive.
+    *
+    * @return the values of the function at the grid points
+    */
+    public static double[] sample(Function function, double a, double b, double h) {
+        long count = count(a, b, h);
+        // Checks that the values fit into one array.
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many grid points for an array: " + count);
+        }
+        double[] values = new double[(int) count];
+        sample(function, a, h, values, null);
+        return values;
+    }
+    /**
+    * Evaluates the function, and optionally its derivative, at the grid points a + i * h for every index of values.
+    *
+    * @param function - the function to evaluate
+    * @param a - the first grid point
+    * @param h - the step between grid points
+    * @param values - the array receiving the values of the function
+    * @param derivatives - the array receiving the values of the derivative, or null to skip the derivative. Must not be values.
+    */
+    public static void sample(Function function, double a, double h, double[] values, double[] derivatives) {
+        checkLength(values.length, derivatives);
+        // Checks that the derivatives do not overwrite the values.
+        if (derivatives == values) {
+            throw new IllegalArgumentException("Values and derivatives must be different arrays");
+        }
+        Function derivative = derivatives == null ? null : function.derivative();
+        ForkJoinPool.commonPool().invoke(new GridTask(function, derivative, a, h, values, derivatives, 0, values.length));
+    }
+    /**
+    * Evaluates the function, and optionally its derivative, at every argument in xs.
+    *
+    * @param function - the function to evaluate
+    * @param xs - the arguments to evaluate
+    * @param values - the array receiving the values of the function. Must be at least as long as xs. May be xs itself.
+    * @param derivatives - the array receiving the values of the derivative, or null to skip the derivative. May be xs itself, but not values.
+    */
+    public static void sample(Function function, double[] xs, double[] values, double[] derivatives) {
+        // Checks that every argument has a place for its value.
+        if (values.length < xs.length) {
+            throw new IllegalArgumentException("Output array is shorter than the input array");
+        }
+        checkLength(xs.length, derivatives);
+        if (derivatives == values) {
+            throw new IllegalArgumentException("Values and derivatives must be different arrays");
+        }
+        Function derivative = derivatives == null ? null : function.derivative();
+        ForkJoinPool.commonPool().invoke(new ArrayTask(function, derivative, xs, values, derivatives, 0, xs.length));
+    }
+    /**
+    * Evaluates the function, and optionally its derivative, at the grid points a + i * h for i below count and writes them to a memory-mapped file. The file holds count little-endian doubles with the values, followed by count doubles with the derivatives if they are requested. The file is created or resized as needed.
+    *
+    * @param function - the function to evaluate
+    * @param a - the first grid point
+    * @param h - the step between grid points
+    * @param count - the number of grid points
+    * @param file - the file receiving the table
+    * @param withDerivative - true to write the derivative after the values
+    */
+    public static void sample(Function function, double a, double h, long count, Path file, boolean withDerivative) {
+        // Checks that the table has a non-negative size.
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative number of grid points: " + count);
+        }
+        Function derivative = withDerivative ? function.derivative() : null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = (withDerivative ? 2 : 1) * count * Double.BYTES;
+            channel.truncate(size);
+            // Extends the file to its full size so that every task can map its range.
+            if (channel.size() < size) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            DoubleBuffer[] windows = map(channel, size / Double.BYTES);
+            ForkJoinPool.commonPool().invoke(new FileTask(function, derivative, a, h, count, windows, 0, count));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the file in windows of WINDOW_SIZE doubles, so that a table needs one mapping per GiB
+     * instead of one per task.
+     */
+    private static DoubleBuffer[] map(FileChannel channel, long doubles) throws IOException {
+        DoubleBuffer[] windows = new DoubleBuffer[(int) ((doubles + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+        for (int i = 0; i < windows.length; i++) {
+            long start = (long) i * WINDOW_SIZE;
+            long length = Math.min(WINDOW_SIZE, doubles - start);
+            windows[i] = channel.map(FileChannel.MapMode.READ_WRITE, start * Double.BYTES, length * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        return windows;
+    }
+
+    /**
+     * Writes the values to the windows starting at the given index of the table, splitting them
+     * where they cross from one window into the next. The writes are absolute, so tasks can share
+     * the windows without sharing their positions.
+     */
+    private static void put(DoubleBuffer[] windows, long index, double[] values, int length) {
+        int offset = 0;
+        while (offset < length) {
+            DoubleBuffer window = windows[(int) ((index + offset) / WINDOW_SIZE)];
+            int position = (int) ((index + offset) % WINDOW_SIZE);
+            int part = Math.min(length - offset, window.capacity() - position);
+            window.put(position, values, offset, part);
+            offset += part;
+        }
+    }
+
+    private static void checkLength(int length, double[] derivatives) {
+        if (derivatives != null && derivatives.length < length) {
+            throw new IllegalArgumentException("Derivative array is shorter than the input array");
+        }
+    }
+
+    /**
+     * Fills the block with the grid points of the given indices.
+     */
+    private static void fillGrid(double a, double h, long from, double[] xs, int length) {
+        for (int i = 0; i < length; i++) {
+            xs[i] = a + (from + i) * h;
+        }
+    }
+
+    /**
+     * Evaluates a range of grid points into arrays.
+     */
+    @SuppressWarnings("serial")
+    private static final class GridTask extends RecursiveAction {
+        private final Function function;
+        private final Function derivative;
+        private final double a;
+        private final double h;
+        private final double[] values;
+        private final double[] derivatives;
+        private final int from;
+        private final int to;
+
+        GridTask(Function function, Function derivative, double a, double h, double[] values, double[] derivatives,
+                int from, int to) {
+            this.function = function;
+            this.derivative = derivative;
+            this.a = a;
+            this.h = h;
+            this.values = values;
+            this.derivatives = derivatives;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // Splits the range in halves until it is small enough.
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GridTask(function, derivative, a, h, values, derivatives, from, middle),
+                        new GridTask(function, derivative, a, h, values, derivatives, middle, to));
+                return;
+            }
+            double[] xs = new double[Function.CHUNK_SIZE];
+            for (int start = from; start < to; start += Function.CHUNK_SIZE) {
+                int length = Math.min(Function.CHUNK_SIZE, to - start);
+                fillGrid(a, h, start, xs, length);
+                function.value(xs, 0, values, start, length);
+                if (derivative != null) {
+                    derivative.value(xs, 0, derivatives, start, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates a range of an argument array into arrays.
+     */
+    @SuppressWarnings("serial")
+    private static final class ArrayTask extends RecursiveAction {
+        private final Function function;
+        private final Function derivative;
+        private final double[] xs;
+        private final double[] values;
+        private final double[] derivatives;
+        private final int from;
+        private final int to;
+
+        ArrayTask(Function function, Function derivative, double[] xs, double[] values, double[] derivatives,
+                int from, int to) {
+            this.function = function;
+            this.derivative = derivative;
+            this.xs = xs;
+            this.values = values;
+            this.derivatives = derivatives;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // Splits the range in halves until it is small enough.
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ArrayTask(function, derivative, xs, values, derivatives, from, middle),
+                        new ArrayTask(function, derivative, xs, values, derivatives, middle, to));
+                return;
+            }
+            // Copies each block of arguments first if an output overwrites them.
+            double[] block = values == xs || derivatives == xs ? new double[Function.CHUNK_SIZE] : null;
+            for (int start = from; start < to; start += Function.CHUNK_SIZE) {
+                int length = Math.min(Function.CHUNK_SIZE, to - start);
+                double[] arguments = xs;
+                int argumentFrom = start;
+                if (block != null) {
+                    System.arraycopy(xs, start, block, 0, length);
+                    arguments = block;
+                    argumentFrom = 0;
+                }
+                function.value(arguments, argumentFrom, values, start, length);
+                if (derivative != null) {
+                    derivative.value(arguments, argumentFrom, derivatives, start, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates a range of grid points into the windows of a memory-mapped file.
+     */
+    @SuppressWarnings("serial")
+    private static final class FileTask extends RecursiveAction {
+        private final Function function;
+        private final Function derivative;
+        private final double a;
+        private final double h;
+        private final long count;
+        private final DoubleBuffer[] windows;
+        private final long from;
+        private final long to;
+
+        FileTask(Function function, Function derivative, double a, double h, long count, DoubleBuffer[] windows,
+                long from, long to) {
+            this.function = function;
+            this.derivative = derivative;
+            this.a = a;
+            this.h = h;
+            this.count = count;
+            this.windows = windows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // Splits the range in halves until it is small enough.
+            if (to - from > THRESHOLD) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new FileTask(function, derivative, a, h, count, windows, from, middle),
+                        new FileTask(function, derivative, a, h, count, windows, middle, to));
+                return;
+            }
+            double[] xs = new double[Function.CHUNK_SIZE];
+            double[] out = new double[Function.CHUNK_SIZE];
+            for (long start = from; start < to; start += Function.CHUNK_SIZE) {
+                int length = (int) Math.min(Function.CHUNK_SIZE, to - start);
+                fillGrid(a, h, start, xs, length);
+                function.value(xs, 0, out, 0, length);
+                put(windows, start, out, length);
+                if (derivative != null) {
+                    derivative.value(xs, 0, out, 0, length);
+                    put(windows, count + start, out, length);
+                }
+            }
+        }
+    }
+}
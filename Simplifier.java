@@ -0,0 +1,344 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Simplifier class rewrites a Function tree into a smaller equivalent tree. It folds constants,
+ * removes neutral and absorbing operands, collapses nested powers and merges like terms.
+ */
+public final class Simplifier {
+    private Simplifier() {
+    }
+    /**
+    * Simplifies the given function. The rules are applied bottom-up until the tree no longer changes.
+    * Rules such as a * 0 = 0 assume finite operands, as usual for algebraic simplification. In the same way the merging of powers of a common base, such as x / x = 1, does not hold where the base is zero; powers are only merged when the result has the same sign and domain for negative bases.
+    *
+    * @param function - the function to simplify. Must not be null.
+    *
+    * @return a function with the same values as the given function and at most as many nodes
+    */
+    public static Function simplify(Function function) {
+        Function current = function;
+        Function next = simplifyOnce(current);
+        // Repeats the pass until no rule applies anymore.
+        while (next != current) {
+            current = next;
+            next = simplifyOnce(current);
+        }
+        return current;
+    }
+    /**
+    * Returns the number of nodes in the given tree. Functions of unknown types count as one node.
+    *
+    * @param function - the tree to count
+    *
+    * @return the number of nodes in the tree
+    */
+    public static int nodeCount(Function function) {
+        // Counts the children of the node types with operands.
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            return 1 + nodeCount(binaryOp.getLeftOperand()) + nodeCount(binaryOp.getRightOperand());
+        }
+        if (function instanceof Log) {
+            return 1 + nodeCount(((Log) function).getOperand());
+        }
+        if (function instanceof Polynomial) {
+            return 1 + nodeCount(((Polynomial) function).getOperand());
+        }
+        return 1;
+    }
+
+    /**
+     * Runs one bottom-up pass and returns the given node itself when nothing changed.
+     */
+    private static Function simplifyOnce(Function function) {
+        // Simplifies the operands first and then the node itself.
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            Function left = simplifyOnce(binaryOp.getLeftOperand());
+            Function right = simplifyOnce(binaryOp.getRightOperand());
+            Function result = simplifyBinaryOp(binaryOp.getOperator(), left, right);
+            // Keeps the original node if neither the operands nor the node changed.
+            if (result == null) {
+                if (left == binaryOp.getLeftOperand() && right == binaryOp.getRightOperand()) {
+                    return binaryOp;
+                }
+                return new BinaryOp(binaryOp.getOperator(), left, right);
+            }
+            return result;
+        }
+        if (function instanceof Log) {
+            Log log = (Log) function;
+            Function operand = simplifyOnce(log.getOperand());
+            // Folds the logarithm of a constant.
+            if (operand instanceof Number) {
+                return new Number(Math.log(((Number) operand).getValue()));
+            }
+            return operand == log.getOperand() ? log : new Log(operand);
+        }
+        if (function instanceof Polynomial) {
+            Polynomial polynomial = (Polynomial) function;
+            Function operand = simplifyOnce(polynomial.getOperand());
+            Function result = simplifyPolynomial(operand, polynomial.getPower());
+            // Keeps the original node if neither the operand nor the node changed.
+            if (result == null) {
+                return operand == polynomial.getOperand() ? polynomial : new Polynomial(operand, polynomial.getPower());
+            }
+            return result;
+        }
+        return function;
+    }
+
+    /**
+     * Applies the rules for operand ^ power and returns null if none applies.
+     */
+    private static Function simplifyPolynomial(Function operand, double power) {
+        // Folds powers of constants and removes the trivial powers.
+        if (operand instanceof Number) {
+            return new Number(Polynomial.pow(((Number) operand).getValue(), power));
+        }
+        if (power == 1) {
+            return operand;
+        }
+        if (power == 0) {
+            return new Number(1);
+        }
+        if (operand instanceof Polynomial) {
+            Polynomial inner = (Polynomial) operand;
+            double product = inner.getPower() * power;
+            // Collapses (b ^ p) ^ q only if it agrees with b ^ (p * q) for negative b: either both
+            // powers are integers, or b ^ p keeps the sign of b or is NaN and p * q is not an
+            // integer, so that both sides are NaN.
+            boolean evenInner = isInteger(inner.getPower()) && inner.getPower() % 2 == 0;
+            if (isInteger(inner.getPower()) && isInteger(power) || !isInteger(product) && !evenInner) {
+                return new Polynomial(inner.getOperand(), product);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies the rules for left operator right and returns null if none applies.
+     */
+    private static Function simplifyBinaryOp(Operator operator, Function left, Function right) {
+        // Folds operations on two constants.
+        if (left instanceof Number && right instanceof Number) {
+            return new Number(new BinaryOp(operator, left, right).value(0));
+        }
+        switch (operator) {
+            case ADD:
+                return simplifyAdd(left, right);
+            case SUBTRACT:
+                return simplifySubtract(left, right);
+            case MULTIPLY:
+                return simplifyMultiply(left, right);
+            case DIVIDE:
+                return simplifyDivide(left, right);
+            default:
+                throw new UnsupportedOperationException("Unsupported operator: " + operator);
+        }
+    }
+
+    private static Function simplifyAdd(Function left, Function right) {
+        // Removes zero operands.
+        if (isConstant(left, 0)) {
+            return right;
+        }
+        if (isConstant(right, 0)) {
+            return left;
+        }
+        return mergeTerms(Operator.ADD, left, right);
+    }
+
+    private static Function simplifySubtract(Function left, Function right) {
+        // Removes a zero right operand and cancels equal operands.
+        if (isConstant(right, 0)) {
+            return left;
+        }
+        if (isConstant(left, 0)) {
+            return new BinaryOp(Operator.MULTIPLY, new Number(-1), right);
+        }
+        return mergeTerms(Operator.SUBTRACT, left, right);
+    }
+
+    /**
+     * Merges the like terms of the sum rooted at left operator right and returns null if no two
+     * terms of the sum are alike.
+     */
+    private static Function mergeTerms(Operator operator, Function left, Function right) {
+        List<Function> terms = new ArrayList<>();
+        List<Double> coefficients = new ArrayList<>();
+        double[] constant = new double[1];
+        int collected = collectTerms(left, 1, terms, coefficients, constant)
+                + collectTerms(right, operator == Operator.ADD ? 1 : -1, terms, coefficients, constant);
+        // Leaves the sum alone if every term is distinct.
+        if (collected == terms.size() + (constant[0] == 0 ? 0 : 1)) {
+            return null;
+        }
+        Function sum = constant[0] == 0 ? null : new Number(constant[0]);
+        for (int i = 0; i < terms.size(); i++) {
+            double coefficient = coefficients.get(i);
+            // Skips the terms that cancelled out.
+            if (coefficient == 0) {
+                continue;
+            }
+            Function term = coefficient == 1 ? terms.get(i)
+                    : new BinaryOp(Operator.MULTIPLY, new Number(coefficient), terms.get(i));
+            sum = sum == null ? term : new BinaryOp(Operator.ADD, sum, term);
+        }
+        return sum == null ? new Number(0) : sum;
+    }
+
+    /**
+     * Adds the terms of the sum rooted at function to the lists and returns how many terms it had.
+     */
+    private static int collectTerms(Function function, double sign, List<Function> terms,
+            List<Double> coefficients, double[] constant) {
+        // Descends into nested sums and differences.
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            if (binaryOp.getOperator() == Operator.ADD || binaryOp.getOperator() == Operator.SUBTRACT) {
+                double rightSign = binaryOp.getOperator() == Operator.ADD ? sign : -sign;
+                return collectTerms(binaryOp.getLeftOperand(), sign, terms, coefficients, constant)
+                        + collectTerms(binaryOp.getRightOperand(), rightSign, terms, coefficients, constant);
+            }
+        }
+        if (function instanceof Number) {
+            constant[0] += sign * ((Number) function).getValue();
+            return 1;
+        }
+        Function term = term(function);
+        double coefficient = sign * coefficient(function);
+        int index = terms.indexOf(term);
+        // Adds the coefficient to an equal term or starts a new term.
+        if (index >= 0) {
+            coefficients.set(index, coefficients.get(index) + coefficient);
+        } else {
+            terms.add(term);
+            coefficients.add(coefficient);
+        }
+        return 1;
+    }
+
+    private static Function simplifyMultiply(Function left, Function right) {
+        // Removes one operands and absorbs zero operands.
+        if (isConstant(left, 0) || isConstant(right, 0)) {
+            return new Number(0);
+        }
+        if (isConstant(left, 1)) {
+            return right;
+        }
+        if (isConstant(right, 1)) {
+            return left;
+        }
+        // Moves constants to the left so that they can be folded together.
+        if (right instanceof Number) {
+            return new BinaryOp(Operator.MULTIPLY, right, left);
+        }
+        if (right instanceof BinaryOp) {
+            BinaryOp inner = (BinaryOp) right;
+            if (inner.getOperator() == Operator.MULTIPLY && inner.getLeftOperand() instanceof Number) {
+                // Folds c1 * (c2 * t) into (c1 * c2) * t.
+                if (left instanceof Number) {
+                    return new BinaryOp(Operator.MULTIPLY,
+                            new Number(((Number) left).getValue() * ((Number) inner.getLeftOperand()).getValue()),
+                            inner.getRightOperand());
+                }
+                // Pulls the constant of a * (c * t) out to c * (a * t).
+                return new BinaryOp(Operator.MULTIPLY, inner.getLeftOperand(),
+                        new BinaryOp(Operator.MULTIPLY, left, inner.getRightOperand()));
+            }
+        }
+        // Turns a * (c / b) into (c * a) / b so that the division can cancel powers.
+        if (right instanceof BinaryOp) {
+            BinaryOp inner = (BinaryOp) right;
+            if (inner.getOperator() == Operator.DIVIDE && inner.getLeftOperand() instanceof Number) {
+                return new BinaryOp(Operator.DIVIDE,
+                        new BinaryOp(Operator.MULTIPLY, inner.getLeftOperand(), left), inner.getRightOperand());
+            }
+        }
+        if (left instanceof Number) {
+            return null;
+        }
+        // Merges integer powers of the same base.
+        Function leftBase = base(left);
+        if (leftBase.equals(base(right)) && isInteger(exponent(left)) && isInteger(exponent(right))) {
+            return new Polynomial(leftBase, exponent(left) + exponent(right));
+        }
+        return null;
+    }
+
+    private static Function simplifyDivide(Function left, Function right) {
+        // Removes a one divisor and a zero dividend.
+        if (isConstant(right, 1)) {
+            return left;
+        }
+        if (isConstant(left, 0)) {
+            return new Number(0);
+        }
+        // Pulls the constant of (c * a) / b out to c * (a / b).
+        if (left instanceof BinaryOp) {
+            BinaryOp inner = (BinaryOp) left;
+            if (inner.getOperator() == Operator.MULTIPLY && inner.getLeftOperand() instanceof Number
+                    && !(right instanceof Number)) {
+                return new BinaryOp(Operator.MULTIPLY, inner.getLeftOperand(),
+                        new BinaryOp(Operator.DIVIDE, inner.getRightOperand(), right));
+            }
+        }
+        // Cancels integer powers of the same base.
+        Function leftBase = base(left);
+        if (!(left instanceof Number) && leftBase.equals(base(right)) && isInteger(exponent(left))
+                && isInteger(exponent(right))) {
+            return new Polynomial(leftBase, exponent(left) - exponent(right));
+        }
+        return null;
+    }
+
+    private static boolean isConstant(Function function, double value) {
+        return function instanceof Number && ((Number) function).getValue() == value;
+    }
+
+    private static boolean isInteger(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value);
+    }
+
+    /**
+     * Returns t for a term of the form c * t and the term itself otherwise.
+     */
+    private static Function term(Function function) {
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            if (binaryOp.getOperator() == Operator.MULTIPLY && binaryOp.getLeftOperand() instanceof Number) {
+                return binaryOp.getRightOperand();
+            }
+        }
+        return function;
+    }
+
+    /**
+     * Returns c for a term of the form c * t and 1 otherwise.
+     */
+    private static double coefficient(Function function) {
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            if (binaryOp.getOperator() == Operator.MULTIPLY && binaryOp.getLeftOperand() instanceof Number) {
+                return ((Number) binaryOp.getLeftOperand()).getValue();
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Returns b for a factor of the form b ^ p and the factor itself otherwise.
+     */
+    private static Function base(Function function) {
+        return function instanceof Polynomial ? ((Polynomial) function).getOperand() : function;
+    }
+
+    /**
+     * Returns p for a factor of the form b ^ p and 1 otherwise.
+     */
+    private static double exponent(Function function) {
+        return function instanceof Polynomial ? ((Polynomial) function).getPower() : 1;
+    }
+}
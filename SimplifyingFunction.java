@@ -0,0 +1,105 @@
+/**
+ * The SimplifyingFunction class wraps a Function whose tree is simplified on construction. Its
+ * derivative is simplified in the same way, so repeated differentiation keeps the trees small.
+ */
+public class SimplifyingFunction implements Function {
+    private final Function function;
+    private final int nodesBefore;
+    private final int nodesAfter;
+    public SimplifyingFunction(Function function) {
+        this.nodesBefore = Simplifier.nodeCount(function);
+        this.function = Simplifier.simplify(function);
+        this.nodesAfter = Simplifier.nodeCount(this.function);
+    }
+    /**
+    * Evaluates the simplified tree at the given argument.
+    *
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public double value(double x) {
+        return function.value(x);
+    }
+    /**
+    * Evaluates the simplified tree over a block of arguments.
+    *
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        function.value(xs, from, out, outFrom, length);
+    }
+    /**
+    * Returns the simplified derivative of this function, wrapped so that its own derivative is simplified as well.
+    *
+    *
+    * @return the derivative of this function as a SimplifyingFunction
+    */
+    public Function derivative() {
+        return new SimplifyingFunction(function.derivative());
+    }
+    /**
+    * Returns the simplified tree.
+    *
+    *
+    * @return the tree this function evaluates
+    */
+    public Function getFunction() {
+        return function;
+    }
+    /**
+    * Returns the number of nodes of the tree before it was simplified.
+    *
+    *
+    * @return the node count of the tree given to the constructor
+    */
+    public int getNodesBefore() {
+        return nodesBefore;
+    }
+    /**
+    * Returns the number of nodes of the simplified tree.
+    *
+    *
+    * @return the node count of the tree this function evaluates
+    */
+    public int getNodesAfter() {
+        return nodesAfter;
+    }
+    /**
+    * Returns the string representation of the simplified tree.
+    *
+    *
+    * @return the string representation of the simplified tree
+    */
+    public String toString() {
+        return function.toString();
+    }
+    /**
+    * Compares this function with another. Two simplifying functions are equal if their simplified trees are equal.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is a SimplifyingFunction with an equal simplified tree
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is a simplifying function.
+        if (obj instanceof SimplifyingFunction) {
+            SimplifyingFunction other = (SimplifyingFunction) obj;
+            return function.equals(other.function);
+        }
+        return false;
+    }
+    /**
+    * Returns the hash code of the simplified tree.
+    *
+    *
+    * @return the structural hash code of the simplified tree
+    */
+    public int hashCode() {
+        return function.hashCode();
+    }
+}
@@ -0,0 +1,442 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The Tape class stores a Function as a flat postfix program in parallel primitive arrays instead
+ * of an object graph. Instruction i computes slot i from the slots named in its operands, and the
+ * last instruction computes the value of the function. Equal subexpressions share one slot.
+ */
+public final class Tape implements Function {
+    static final byte ADD = 0;
+    static final byte SUBTRACT = 1;
+    static final byte MULTIPLY = 2;
+    static final byte DIVIDE = 3;
+    static final byte LOG = 4;
+    static final byte POW = 5;
+    static final byte CONST = 6;
+    static final byte VAR = 7;
+    static final byte CALL = 8;
+
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private final byte[] opcodes;
+    private final double[] constants;
+    private final int[] operands;
+    private final Function[] calls;
+    private Tape(byte[] opcodes, double[] constants, int[] operands, Function[] calls) {
+        this.opcodes = opcodes;
+        this.constants = constants;
+        this.operands = operands;
+        this.calls = calls;
+    }
+    /**
+    * Converts the given tree into a tape. The tree is walked without recursion, and nodes of unknown Function types are kept as calls.
+    *
+    * @param function - the tree to convert
+    *
+    * @return a tape computing the same values as the tree
+    */
+    public static Tape of(Function function) {
+        // Returns the tape itself if the function is already a tape.
+        if (function instanceof Tape) {
+            return (Tape) function;
+        }
+        Builder builder = new Builder();
+        Map<Function, Integer> visited = new IdentityHashMap<>();
+        IterativeEngine.WorkStack work = new IterativeEngine.WorkStack(function);
+        int[] slots = new int[16];
+        int size = 0;
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            Integer known = expanded ? null : visited.get(node);
+            // Reuses the slot of a node reached before and pushes the operands of a new node first.
+            if (known == null && !expanded && work.expand(node)) {
+                continue;
+            }
+            int slot;
+            if (known != null) {
+                slot = known;
+            } else if (node instanceof BinaryOp) {
+                int right = slots[--size];
+                int left = slots[--size];
+                slot = builder.emit((byte) ((BinaryOp) node).getOperator().ordinal(), left, right, 0);
+            } else if (node instanceof Log) {
+                slot = builder.emit(LOG, slots[--size], -1, 0);
+            } else if (node instanceof Polynomial) {
+                slot = builder.emit(POW, slots[--size], -1, ((Polynomial) node).getPower());
+            } else if (node instanceof Number) {
+                slot = builder.emit(CONST, -1, -1, ((Number) node).getValue());
+            } else if (node instanceof Variable) {
+                slot = builder.emit(VAR, -1, -1, 0);
+            } else {
+                slot = builder.call(node);
+            }
+            visited.put(node, slot);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+        return builder.build(slots[0]);
+    }
+    /**
+    * Evaluates the tape at the given argument using registers lent by BlockScratch, so no memory is allocated once the calling thread has evaluated a tape this long.
+    *
+    * @param x - the argument to the function
+    *
+    * @return the value of the function at x
+    */
+    public double value(double x) {
+        BlockScratch scratch = BlockScratch.get();
+        double[] slots = scratch.acquire(opcodes.length);
+        try {
+            return value(x, slots);
+        } finally {
+            scratch.release();
+        }
+    }
+    /**
+    * Evaluates the tape at the given argument using the given register array.
+    *
+    * @param x - the argument to the function
+    * @param slots - the registers, at least #size () long
+    *
+    * @return the value of the function at x
+    */
+    public double value(double x, double[] slots) {
+        int length = opcodes.length;
+        for (int i = 0; i < length; i++) {
+            // Executes the instruction of slot i.
+            switch (opcodes[i]) {
+                case ADD:
+                    slots[i] = slots[operands[2 * i]] + slots[operands[2 * i + 1]];
+                    break;
+                case SUBTRACT:
+                    slots[i] = slots[operands[2 * i]] - slots[operands[2 * i + 1]];
+                    break;
+                case MULTIPLY:
+                    slots[i] = slots[operands[2 * i]] * slots[operands[2 * i + 1]];
+                    break;
+                case DIVIDE:
+                    slots[i] = slots[operands[2 * i]] / slots[operands[2 * i + 1]];
+                    break;
+                case LOG:
+                    slots[i] = Math.log(slots[operands[2 * i]]);
+                    break;
+                case POW:
+                    slots[i] = Polynomial.pow(slots[operands[2 * i]], constants[i]);
+                    break;
+                case CONST:
+                    slots[i] = constants[i];
+                    break;
+                case VAR:
+                    slots[i] = x;
+                    break;
+                default:
+                    slots[i] = calls[operands[2 * i]].value(x);
+                    break;
+            }
+        }
+        return slots[length - 1];
+    }
+    /**
+    * Evaluates the tape over a block of arguments with one register array for the whole block.
+    *
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to evaluate
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        BlockScratch scratch = BlockScratch.get();
+        double[] slots = scratch.acquire(opcodes.length);
+        try {
+            for (int i = 0; i < length; i++) {
+                out[outFrom + i] = value(xs[from + i], slots);
+            }
+        } finally {
+            scratch.release();
+        }
+    }
+    /**
+    * Returns the derivative of this function as a new tape. The derivative instructions are appended to the tape instruction by instruction, following the rules of BinaryOp#derivative, Log#derivative and Polynomial#derivative.
+    *
+    *
+    * @return a tape for the derivative of this function
+    */
+    public Function derivative() {
+        Builder builder = new Builder();
+        int length = opcodes.length;
+        int[] values = new int[length];
+        int[] derivatives = new int[length];
+        for (int i = 0; i < length; i++) {
+            int left = operands[2 * i] < 0 ? -1 : values[operands[2 * i]];
+            int right = operands[2 * i + 1] < 0 ? -1 : values[operands[2 * i + 1]];
+            int leftDerivative = operands[2 * i] < 0 ? -1 : derivatives[operands[2 * i]];
+            int rightDerivative = operands[2 * i + 1] < 0 ? -1 : derivatives[operands[2 * i + 1]];
+            // Copies the instruction and emits the instructions of its derivative.
+            switch (opcodes[i]) {
+                case ADD:
+                case SUBTRACT:
+                    values[i] = builder.emit(opcodes[i], left, right, 0);
+                    derivatives[i] = builder.emit(opcodes[i], leftDerivative, rightDerivative, 0);
+                    break;
+                case MULTIPLY:
+                    values[i] = builder.emit(MULTIPLY, left, right, 0);
+                    derivatives[i] = builder.emit(ADD,
+                            builder.emit(MULTIPLY, left, rightDerivative, 0),
+                            builder.emit(MULTIPLY, leftDerivative, right, 0), 0);
+                    break;
+                case DIVIDE:
+                    values[i] = builder.emit(DIVIDE, left, right, 0);
+                    derivatives[i] = builder.emit(DIVIDE,
+                            builder.emit(SUBTRACT,
+                                    builder.emit(MULTIPLY, leftDerivative, right, 0),
+                                    builder.emit(MULTIPLY, left, rightDerivative, 0), 0),
+                            builder.emit(MULTIPLY, right, right, 0), 0);
+                    break;
+                case LOG:
+                    values[i] = builder.emit(LOG, left, -1, 0);
+                    derivatives[i] = builder.emit(DIVIDE, leftDerivative, left, 0);
+                    break;
+                case POW:
+                    values[i] = builder.emit(POW, left, -1, constants[i]);
+                    derivatives[i] = builder.emit(MULTIPLY,
+                            builder.emit(CONST, -1, -1, constants[i]),
+                            builder.emit(MULTIPLY,
+                                    builder.emit(POW, left, -1, constants[i] - 1),
+                                    leftDerivative, 0), 0);
+                    break;
+                case CONST:
+                    values[i] = builder.emit(CONST, -1, -1, constants[i]);
+                    derivatives[i] = builder.emit(CONST, -1, -1, 0);
+                    break;
+                case VAR:
+                    values[i] = builder.emit(VAR, -1, -1, 0);
+                    derivatives[i] = builder.emit(CONST, -1, -1, 1);
+                    break;
+                default:
+                    values[i] = builder.call(calls[operands[2 * i]]);
+                    derivatives[i] = builder.call(calls[operands[2 * i]].derivative());
+                    break;
+            }
+        }
+        return builder.build(derivatives[length - 1]);
+    }
+    /**
+    * Converts this tape back into an object tree. Slots used by several instructions become nodes shared by several parents.
+    *
+    *
+    * @return a Function tree computing the same values as this tape
+    */
+    public Function toFunction() {
+        int length = opcodes.length;
+        Function[] nodes = new Function[length];
+        for (int i = 0; i < length; i++) {
+            // Builds the node of slot i from the nodes of its operands.
+            switch (opcodes[i]) {
+                case ADD:
+                case SUBTRACT:
+                case MULTIPLY:
+                case DIVIDE:
+                    nodes[i] = new BinaryOp(OPERATORS[opcodes[i]], nodes[operands[2 * i]], nodes[operands[2 * i + 1]]);
+                    break;
+                case LOG:
+                    nodes[i] = new Log(nodes[operands[2 * i]]);
+                    break;
+                case POW:
+                    nodes[i] = new Polynomial(nodes[operands[2 * i]], constants[i]);
+                    break;
+                case CONST:
+                    nodes[i] = new Number(constants[i]);
+                    break;
+                case VAR:
+                    nodes[i] = new Variable();
+                    break;
+                default:
+                    nodes[i] = calls[operands[2 * i]];
+                    break;
+            }
+        }
+        return nodes[length - 1];
+    }
+    /**
+    * Returns the number of instructions of this tape, which is also the number of registers it needs.
+    *
+    *
+    * @return the number of instructions
+    */
+    public int size() {
+        return opcodes.length;
+    }
+    /**
+    * Returns the string representation of the tree this tape computes.
+    *
+    *
+    * @return the same text as toFunction ().toString ()
+    */
+    public String toString() {
+        return IterativeEngine.toString(toFunction());
+    }
+    /**
+    * Compares this tape with another. Two tapes are equal if they hold the same instructions.
+    *
+    * @param obj - the object to compare with. May be null.
+    *
+    * @return true if obj is a Tape with the same instructions
+    */
+    public boolean equals(Object obj) {
+        // Returns true if the object is a tape with the same arrays.
+        if (obj instanceof Tape) {
+            Tape other = (Tape) obj;
+            return Arrays.equals(opcodes, other.opcodes)
+                    && Arrays.equals(constants, other.constants)
+                    && Arrays.equals(operands, other.operands)
+                    && Arrays.equals(calls, other.calls);
+        }
+        return false;
+    }
+    /**
+    * Returns a hash code computed from the instructions of this tape.
+    *
+    *
+    * @return the hash code of the instruction arrays
+    */
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(opcodes), Arrays.hashCode(constants),
+                Arrays.hashCode(operands), Arrays.hashCode(calls));
+    }
+
+    /**
+     * Appends instructions, giving equal instructions a single slot.
+     */
+    private static final class Builder {
+        private byte[] opcodes = new byte[16];
+        private double[] constants = new double[16];
+        private int[] operands = new int[32];
+        private Function[] calls = new Function[0];
+        private int size;
+        private int callCount;
+        private final Map<Instruction, Integer> slots = new HashMap<>();
+        private final Map<Function, Integer> callSlots = new IdentityHashMap<>();
+
+        int emit(byte opcode, int left, int right, double constant) {
+            Instruction instruction = new Instruction(opcode, left, right, Double.doubleToLongBits(constant));
+            Integer known = slots.get(instruction);
+            // Reuses the slot of an equal instruction.
+            if (known != null) {
+                return known;
+            }
+            if (size == opcodes.length) {
+                opcodes = Arrays.copyOf(opcodes, size * 2);
+                constants = Arrays.copyOf(constants, size * 2);
+                operands = Arrays.copyOf(operands, size * 4);
+            }
+            opcodes[size] = opcode;
+            constants[size] = constant;
+            operands[2 * size] = left;
+            operands[2 * size + 1] = right;
+            slots.put(instruction, size);
+            return size++;
+        }
+
+        int call(Function function) {
+            Integer known = callSlots.get(function);
+            // Reuses the slot of the same function object.
+            if (known != null) {
+                return known;
+            }
+            if (callCount == calls.length) {
+                calls = Arrays.copyOf(calls, Math.max(4, callCount * 2));
+            }
+            calls[callCount] = function;
+            int slot = emit(CALL, callCount++, -1, 0);
+            callSlots.put(function, slot);
+            return slot;
+        }
+
+        /**
+         * Returns a tape holding only the instructions the result slot depends on, with the result
+         * slot last.
+         */
+        Tape build(int result) {
+            boolean[] used = new boolean[size];
+            used[result] = true;
+            // Marks the operands of used instructions; operands always precede their users.
+            for (int i = result; i >= 0; i--) {
+                if (used[i] && opcodes[i] != CALL) {
+                    if (operands[2 * i] >= 0) {
+                        used[operands[2 * i]] = true;
+                    }
+                    if (operands[2 * i + 1] >= 0) {
+                        used[operands[2 * i + 1]] = true;
+                    }
+                }
+            }
+            int[] renumbered = new int[size];
+            int count = 0;
+            for (int i = 0; i <= result; i++) {
+                if (used[i]) {
+                    renumbered[i] = count++;
+                }
+            }
+            byte[] newOpcodes = new byte[count];
+            double[] newConstants = new double[count];
+            int[] newOperands = new int[2 * count];
+            Function[] newCalls = new Function[callCount];
+            int newCallCount = 0;
+            for (int i = 0; i <= result; i++) {
+                if (!used[i]) {
+                    continue;
+                }
+                int slot = renumbered[i];
+                newOpcodes[slot] = opcodes[i];
+                newConstants[slot] = constants[i];
+                if (opcodes[i] == CALL) {
+                    newCalls[newCallCount] = calls[operands[2 * i]];
+                    newOperands[2 * slot] = newCallCount++;
+                    newOperands[2 * slot + 1] = -1;
+                } else {
+                    newOperands[2 * slot] = operands[2 * i] < 0 ? -1 : renumbered[operands[2 * i]];
+                    newOperands[2 * slot + 1] = operands[2 * i + 1] < 0 ? -1 : renumbered[operands[2 * i + 1]];
+                }
+            }
+            return new Tape(newOpcodes, newConstants, newOperands, Arrays.copyOf(newCalls, newCallCount));
+        }
+    }
+
+    /**
+     * The key under which an instruction is shared.
+     */
+    private static final class Instruction {
+        private final byte opcode;
+        private final int left;
+        private final int right;
+        private final long constant;
+
+        Instruction(byte opcode, int left, int right, long constant) {
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+            this.constant = constant;
+        }
+
+        public boolean equals(Object obj) {
+            if (obj instanceof Instruction) {
+                Instruction other = (Instruction) obj;
+                return opcode == other.opcode && left == other.left && right == other.right
+                        && constant == other.constant;
+            }
+            return false;
+        }
+
+        public int hashCode() {
+            return ((opcode * 31 + left) * 31 + right) * 31 + Long.hashCode(constant);
+        }
+    }
+}
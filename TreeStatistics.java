@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TreeStatistics class describes the shape of a Function tree: how many nodes it has as a
+ * tree, how many node objects and structurally distinct subtrees make it up, how deep it is, and
+ * how many nodes of each type and operator it contains. Derivative trees reuse their operands, so
+ * the node count can be far larger than the number of objects; it is computed from the objects
+ * without walking every path, and saturates at Long.MAX_VALUE.
+ */
+public final class TreeStatistics {
+    private final long nodeCount;
+    private final int objectCount;
+    private final int distinctCount;
+    private final int sharedCount;
+    private final int depth;
+    private final Map<Class<?>, Long> typeCounts;
+    private final Map<Operator, Long> operatorCounts;
+    private TreeStatistics(long nodeCount, int objectCount, int distinctCount, int sharedCount, int depth,
+            Map<Class<?>, Long> typeCounts, Map<Operator, Long> operatorCounts) {
+        this.nodeCount = nodeCount;
+        this.objectCount = objectCount;
+        this.distinctCount = distinctCount;
+        this.sharedCount = sharedCount;
+        this.depth = depth;
+        this.typeCounts = typeCounts;
+        this.operatorCounts = operatorCounts;
+    }
+    /**
+    * Computes the statistics of the given tree without recursion.
+    *
+    * @param function - the tree to describe
+    *
+    * @return the statistics of the tree
+    */
+    public static TreeStatistics of(Function function) {
+        List<Function> order = new ArrayList<>();
+        Map<Function, Integer> ids = new IdentityHashMap<>();
+        IterativeEngine.WorkStack work = new IterativeEngine.WorkStack(function);
+        while (!work.isEmpty()) {
+            boolean expanded = work.topExpanded();
+            Function node = work.pop();
+            // Numbers the objects in post-order and skips the ones reached before.
+            if (ids.containsKey(node) || !expanded && work.expand(node)) {
+                continue;
+            }
+            ids.put(node, order.size());
+            order.add(node);
+        }
+        int size = order.size();
+        int[] depths = new int[size];
+        long[] multiplicities = new long[size];
+        for (int i = 0; i < size; i++) {
+            int operandDepth = 0;
+            for (Function operand : operands(order.get(i))) {
+                operandDepth = Math.max(operandDepth, depths[ids.get(operand)]);
+            }
+            depths[i] = operandDepth + 1;
+        }
+        multiplicities[size - 1] = 1;
+        for (int i = size - 1; i >= 0; i--) {
+            for (Function operand : operands(order.get(i))) {
+                int id = ids.get(operand);
+                multiplicities[id] = add(multiplicities[id], multiplicities[i]);
+            }
+        }
+        Map<Class<?>, Long> typeCounts = new LinkedHashMap<>();
+        Map<Operator, Long> operatorCounts = new EnumMap<>(Operator.class);
+        Map<Function, Long> occurrences = new HashMap<>();
+        long nodeCount = 0;
+        for (int i = 0; i < size; i++) {
+            Function node = order.get(i);
+            long multiplicity = multiplicities[i];
+            nodeCount = add(nodeCount, multiplicity);
+            typeCounts.merge(node.getClass(), multiplicity, TreeStatistics::add);
+            if (node instanceof BinaryOp) {
+                operatorCounts.merge(((BinaryOp) node).getOperator(), multiplicity, TreeStatistics::add);
+            }
+            occurrences.merge(node, multiplicity, TreeStatistics::add);
+        }
+        int sharedCount = 0;
+        for (long count : occurrences.values()) {
+            if (count > 1) {
+                sharedCount++;
+            }
+        }
+        return new TreeStatistics(nodeCount, size, occurrences.size(), sharedCount, depths[size - 1], typeCounts,
+                operatorCounts);
+    }
+    /**
+    * Returns the number of nodes of the tree, counting a node once for every path from the root that reaches it. This is the number of nodes visited by value and toString.
+    *
+    *
+    * @return the number of nodes of the tree, or Long.MAX_VALUE if it does not fit
+    */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+    /**
+    * Returns the number of distinct node objects of the tree.
+    *
+    *
+    * @return the number of objects the tree holds in memory
+    */
+    public int getObjectCount() {
+        return objectCount;
+    }
+    /**
+    * Returns the number of structurally distinct subtrees of the tree.
+    *
+    *
+    * @return the number of unique subtrees
+    */
+    public int getDistinctCount() {
+        return distinctCount;
+    }
+    /**
+    * Returns the number of structurally distinct subtrees that occur more than once in the tree.
+    *
+    *
+    * @return the number of shared subtrees
+    */
+    public int getSharedCount() {
+        return sharedCount;
+    }
+    /**
+    * Returns the depth of the tree. A single node has depth 1.
+    *
+    *
+    * @return the number of nodes on the longest path from the root
+    */
+    public int getDepth() {
+        return depth;
+    }
+    /**
+    * Returns the number of nodes of the given type, counted as in #getNodeCount ().
+    *
+    * @param type - the node type to count
+    *
+    * @return the number of nodes of that type
+    */
+    public long getCount(Class<? extends Function> type) {
+        return typeCounts.getOrDefault(type, 0L);
+    }
+    /**
+    * Returns the number of BinaryOp nodes with the given operator, counted as in #getNodeCount ().
+    *
+    * @param operator - the operator to count
+    *
+    * @return the number of nodes with that operator
+    */
+    public long getCount(Operator operator) {
+        return operatorCounts.getOrDefault(operator, 0L);
+    }
+    /**
+    * Returns a summary of the statistics.
+    *
+    *
+    * @return the counts, depth and type counts in human readable form
+    */
+    public String toString() {
+        StringBuilder builder = new StringBuilder("TreeStatistics[nodes=").append(nodeCount)
+                .append(", objects=").append(objectCount)
+                .append(", distinct=").append(distinctCount)
+                .append(", shared=").append(sharedCount)
+                .append(", depth=").append(depth);
+        for (Map.Entry<Class<?>, Long> entry : typeCounts.entrySet()) {
+            builder.append(", ").append(entry.getKey().getSimpleName()).append('=').append(entry.getValue());
+        }
+        for (Map.Entry<Operator, Long> entry : operatorCounts.entrySet()) {
+            builder.append(", ").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.append(']').toString();
+    }
+
+    private static Function[] operands(Function function) {
+        if (function instanceof BinaryOp) {
+            BinaryOp binaryOp = (BinaryOp) function;
+            return new Function[] { binaryOp.getLeftOperand(), binaryOp.getRightOperand() };
+        }
+        if (function instanceof Log) {
+            return new Function[] { ((Log) function).getOperand() };
+        }
+        if (function instanceof Polynomial) {
+            return new Function[] { ((Polynomial) function).getOperand() };
+        }
+        return new Function[0];
+    }
+
+    /**
+     * Adds two non-negative counts, saturating at Long.MAX_VALUE.
+     */
+    private static long add(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
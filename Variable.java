@@ -10,6 +10,18 @@ public class Variable implements Function {
         return x;
     }
     /**
+    * Copies a block of arguments into out, since the value of the variable is its argument.
+    * 
+    * @param xs - the arguments to evaluate
+    * @param from - the index of the first argument
+    * @param out - the array receiving the values
+    * @param outFrom - the index of the first value in out
+    * @param length - the number of arguments to copy
+    */
+    public void value(double[] xs, int from, double[] out, int outFrom, int length) {
+        System.arraycopy(xs, from, out, outFrom, length);
+    }
+    /**
     * Returns the derivative of this function. It is equivalent to the following code : function ( 1 ). derivative ()
     * 
     * 
@@ -37,4 +49,13 @@ public class Variable implements Function {
     public boolean equals(Object obj) {
         return obj instanceof Variable;
     }
+    /**
+    * Returns a hash code for this variable. All variables are equal, so they share one hash code.
+    * 
+    * 
+    * @return the hash code shared by all variables
+    */
+    public int hashCode() {
+        return 1;
+    }
 }
\ No newline at end of file
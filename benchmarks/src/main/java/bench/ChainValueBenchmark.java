@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Function.value(double) on left-deep chains of binary operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainValueBenchmark {
+    @Param({ "10", "100", "1000" })
+    public int length;
+
+    @Param({ "ADD", "MUL", "MIXED" })
+    public String mix;
+
+    private Object chain;
+    private double x;
+
+    @Setup
+    public void setup() {
+        chain = Trees.chain(length, mix, 42);
+        x = 1.5;
+    }
+
+    @Benchmark
+    public double chain() {
+        return Library.value(chain, x);
+    }
+}
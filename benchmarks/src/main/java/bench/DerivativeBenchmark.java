@@ -0,0 +1,71 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures derivative() construction for each node type, with x + 1.0 as the operand of the
+ * nodes that have operands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DerivativeBenchmark {
+    @Param({ "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE" })
+    public String operator;
+
+    private Object variable;
+    private Object number;
+    private Object binaryOp;
+    private Object log;
+    private Object polynomial;
+
+    @Setup
+    public void setup() {
+        Object operand = Library.binaryOp("ADD", Library.variable(), Library.number(1.0));
+        variable = Library.variable();
+        number = Library.number(2.0);
+        binaryOp = Library.binaryOp(operator, operand, Library.binaryOp("ADD", Library.variable(), Library.number(1.0)));
+        log = Library.log(operand);
+        polynomial = Library.polynomial(operand, 3.0);
+    }
+
+    @Benchmark
+    public Object variable() {
+        return Library.derivative(variable);
+    }
+
+    @Benchmark
+    public Object number() {
+        return Library.derivative(number);
+    }
+
+    @Benchmark
+    public Object binaryOp() {
+        return Library.derivative(binaryOp);
+    }
+
+    @Benchmark
+    public Object log() {
+        return Library.derivative(log);
+    }
+
+    @Benchmark
+    public Object polynomial() {
+        return Library.derivative(polynomial);
+    }
+}
@@ -0,0 +1,46 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures equals() between two structurally equal trees that share no nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EqualsBenchmark {
+    @Param({ "2", "6", "10" })
+    public int depth;
+
+    @Param({ "ADD", "MIXED" })
+    public String mix;
+
+    private Object left;
+    private Object right;
+
+    @Setup
+    public void setup() {
+        left = Trees.balanced(depth, mix, 42);
+        right = Trees.balanced(depth, mix, 42);
+    }
+
+    @Benchmark
+    public boolean equalTrees() {
+        return left.equals(right);
+    }
+}
@@ -0,0 +1,159 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Binds the benchmarks to the function library. The library lives in the unnamed package, which
+ * Java code in a named package cannot import, and JMH does not accept benchmarks in the unnamed
+ * package. The library is therefore reached through method handles held in static final fields,
+ * which the JIT treats as constants and inlines like direct calls.
+ */
+final class Library {
+    static final Class<?> FUNCTION = load("Function");
+    static final Object[] OPERATORS = load("Operator").getEnumConstants();
+
+    private static final MethodHandle VALUE = virtual(FUNCTION, "value", double.class, double.class);
+    private static final MethodHandle DERIVATIVE = virtual(FUNCTION, "derivative", FUNCTION);
+    private static final MethodHandle VARIABLE = constructor("Variable");
+    private static final MethodHandle NUMBER = constructor("Number", double.class);
+    private static final MethodHandle BINARY_OP = constructor("BinaryOp", load("Operator"), FUNCTION, FUNCTION);
+    private static final MethodHandle LOG = constructor("Log", FUNCTION);
+    private static final MethodHandle POLYNOMIAL = constructor("Polynomial", FUNCTION, double.class);
+
+    private Library() {
+    }
+
+    static double value(Object function, double x) {
+        try {
+            return (double) VALUE.invokeExact(function, x);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object derivative(Object function) {
+        try {
+            return (Object) DERIVATIVE.invokeExact(function);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object variable() {
+        try {
+            return (Object) VARIABLE.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object number(double value) {
+        try {
+            return (Object) NUMBER.invokeExact(value);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object binaryOp(String operator, Object left, Object right) {
+        try {
+            return (Object) BINARY_OP.invokeExact(operator(operator), left, right);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object log(Object operand) {
+        try {
+            return (Object) LOG.invokeExact(operand);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object polynomial(Object operand, double power) {
+        try {
+            return (Object) POLYNOMIAL.invokeExact(operand, power);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static Object operator(String name) {
+        for (Object operator : OPERATORS) {
+            if (operator.toString().equals(name)) {
+                return operator;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operator: " + name);
+    }
+
+    static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Returns a handle for an instance method whose reference parameters and result are typed as Object.
+     */
+    static MethodHandle virtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Returns a handle for a static method whose reference parameters and result are typed as Object.
+     */
+    static MethodHandle staticMethod(String owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findStatic(load(owner), name, MethodType.methodType(returnType, parameters));
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle constructor(String owner, Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findConstructor(load(owner), MethodType.methodType(void.class, parameters));
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Replaces every reference type of the method type by Object and keeps the primitive types.
+     */
+    private static MethodType erase(MethodType type) {
+        MethodType result = type;
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (!type.parameterType(i).isPrimitive()) {
+                result = result.changeParameterType(i, Object.class);
+            }
+        }
+        return type.returnType().isPrimitive() ? result : result.changeReturnType(Object.class);
+    }
+
+    static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
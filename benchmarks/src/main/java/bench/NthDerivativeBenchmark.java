@@ -0,0 +1,58 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the n-th derivative by repeated derivative() calls, and evaluating it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NthDerivativeBenchmark {
+    @Param({ "1", "2", "3", "4" })
+    public int order;
+
+    @Param({ "3" })
+    public int depth;
+
+    @Param({ "ADD", "MUL", "MIXED" })
+    public String mix;
+
+    private Object tree;
+    private Object derivative;
+
+    @Setup
+    public void setup() {
+        tree = Trees.balanced(depth, mix, 42);
+        derivative = derive();
+    }
+
+    @Benchmark
+    public Object derive() {
+        Object result = tree;
+        for (int i = 0; i < order; i++) {
+            result = Library.derivative(result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double value() {
+        return Library.value(derivative, 1.5);
+    }
+}
@@ -0,0 +1,78 @@
+package bench;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures parsing throughput in expressions per second, for single expressions and for a
+ * newline-delimited stream of expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    private static final int LINES = 1000;
+    private static final MethodHandle PARSE = Library.staticMethod("FunctionParser", "parse", Library.FUNCTION,
+            CharSequence.class);
+    private static final MethodHandle PARSE_LINES = Library.staticMethod("FunctionParser", "parseLines", long.class,
+            Reader.class, Consumer.class);
+
+    @Param({ "2", "6", "10" })
+    public int depth;
+
+    @Param({ "ADD", "MIXED" })
+    public String mix;
+
+    private String text;
+    private String lines;
+
+    @Setup
+    public void setup() {
+        text = Trees.balanced(depth, mix, 42).toString();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            builder.append(Trees.balanced(depth, mix, i)).append('\n');
+        }
+        lines = builder.toString();
+    }
+
+    @Benchmark
+    public Object parse() {
+        try {
+            return (Object) PARSE.invokeExact((Object) text);
+        } catch (Throwable e) {
+            throw Library.rethrow(e);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parseLines(Blackhole blackhole) {
+        Consumer<Object> consumer = blackhole::consume;
+        try {
+            return (long) PARSE_LINES.invokeExact((Object) new StringReader(lines), (Object) consumer);
+        } catch (Throwable e) {
+            throw Library.rethrow(e);
+        }
+    }
+}
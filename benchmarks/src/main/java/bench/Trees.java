@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * Builds the trees measured by the benchmarks. Trees built with the same arguments are
+ * structurally equal but share no nodes.
+ */
+final class Trees {
+    private Trees() {
+    }
+
+    /**
+     * Returns a balanced tree of the given depth. The mix selects the operators: ADD uses ADD and
+     * SUBTRACT, MUL uses MULTIPLY and DIVIDE, and MIXED uses all four plus Log and Polynomial nodes.
+     */
+    static Object balanced(int depth, String mix, long seed) {
+        return balanced(depth, mix, new Random(seed));
+    }
+
+    /**
+     * Returns a left-deep chain with the given number of binary operations.
+     */
+    static Object chain(int length, String mix, long seed) {
+        Random random = new Random(seed);
+        Object tree = Library.variable();
+        for (int i = 0; i < length; i++) {
+            tree = Library.binaryOp(operator(mix, random), tree, leaf(random));
+        }
+        return tree;
+    }
+
+    private static Object balanced(int depth, String mix, Random random) {
+        if (depth == 0) {
+            return leaf(random);
+        }
+        if (mix.equals("MIXED") && random.nextInt(4) == 0) {
+            Object operand = balanced(depth - 1, mix, random);
+            return random.nextBoolean() ? Library.log(operand) : Library.polynomial(operand, random.nextBoolean() ? 2.0 : 0.5);
+        }
+        String operator = operator(mix, random);
+        return Library.binaryOp(operator, balanced(depth - 1, mix, random), balanced(depth - 1, mix, random));
+    }
+
+    private static Object leaf(Random random) {
+        return random.nextBoolean() ? Library.variable() : Library.number(0.5 + random.nextInt(5) * 0.5);
+    }
+
+    private static String operator(String mix, Random random) {
+        switch (mix) {
+            case "ADD":
+                return random.nextBoolean() ? "ADD" : "SUBTRACT";
+            case "MUL":
+                return random.nextBoolean() ? "MULTIPLY" : "DIVIDE";
+            case "MIXED":
+                return Library.OPERATORS[random.nextInt(Library.OPERATORS.length)].toString();
+            default:
+                throw new IllegalArgumentException("Unknown operator mix: " + mix);
+        }
+    }
+}